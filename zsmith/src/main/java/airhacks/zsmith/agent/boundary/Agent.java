@@ -4,30 +4,53 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
 
 import org.json.JSONArray;
+import org.json.JSONObject;
 
 import airhacks.zcfg.ZCfg;
+import airhacks.zsmith.agent.control.Compaction;
+import airhacks.zsmith.agent.control.SlidingWindow;
+import airhacks.zsmith.agent.control.Summarizing;
 import airhacks.zsmith.agent.entity.Memory;
 import airhacks.zsmith.agent.entity.Message;
 import airhacks.zsmith.claude.control.Claude;
+import airhacks.zsmith.claude.control.HttpClients;
+import airhacks.zsmith.claude.control.ToolCatalog;
 import airhacks.zsmith.logging.control.Log;
+import airhacks.zsmith.tools.control.Cacheable;
 import airhacks.zsmith.tools.control.Tool;
+import airhacks.zsmith.tools.control.ToolGuard;
+import airhacks.zsmith.tools.control.ToolResultCache;
 import airhacks.zsmith.tools.entity.ToolResult;
 import airhacks.zsmith.tools.entity.ToolUse;
 
 
-public record Agent(String name, String systemPrompt, Memory memory, Map<String, Tool> tools, int maxIterations, float temperature) {
+public record Agent(String name, String systemPrompt, Memory memory, Map<String, Tool> tools, int maxIterations, float temperature, int toolConcurrency, ToolCatalog toolCatalog, Map<String, ToolGuard> toolGuards, Compaction compaction) {
     static final String version ="2026.02.22.01";
 
     static final String DEFAULT_NAME = "zsmith";
     static final String DEFAULT_SYSTEM_PROMPT = "You are a helpful assistant.";
     static final int DEFAULT_MAX_ITERATIONS = 10;
     static final float DEFAULT_TEMPERATURE = 0.7f;
+    static final int DEFAULT_TOOL_CONCURRENCY = 1;
+    static final String MAX_ITERATIONS_REACHED = "Max iterations reached";
+    static final Executor TOOL_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
 
     static {
         Log.user("zsmith v" + version);
         ZCfg.load("zsmith");
+        if (HttpClients.WARMUP) {
+            Claude.warmUp();
+        }
     }
 
     public Agent(String name, String systemPrompt) {
@@ -37,7 +60,11 @@ public record Agent(String name, String systemPrompt, Memory memory, Map<String,
             new Memory(),
             new HashMap<>(),
             DEFAULT_MAX_ITERATIONS,
-            DEFAULT_TEMPERATURE
+            DEFAULT_TEMPERATURE,
+            DEFAULT_TOOL_CONCURRENCY,
+            new ToolCatalog(),
+            new HashMap<>(),
+            Compaction.NONE
         );
         ZCfg.override(this.name);
     }
@@ -50,26 +77,40 @@ public record Agent(String name, String systemPrompt, Memory memory, Map<String,
         this(DEFAULT_NAME, DEFAULT_SYSTEM_PROMPT);
     }
 
+    /**
+     * The tool's timeout and bulkhead are read from the agent's configuration, see {@link ToolGuard}.
+     */
     public Agent withTool(Tool tool) {
         this.tools.put(tool.name(), tool);
+        this.toolGuards.put(tool.name(), ToolGuard.of(this.name, tool.name()));
+        this.toolCatalog.rebuild(this.tools.values());
         return this;
     }
 
     public Agent withMaxIterations(int maxIterations) {
-        return new Agent(this.name, this.systemPrompt, this.memory, this.tools, maxIterations, this.temperature);
+        return new Agent(this.name, this.systemPrompt, this.memory, this.tools, maxIterations, this.temperature, this.toolConcurrency, this.toolCatalog, this.toolGuards, this.compaction);
     }
 
     public Agent withTemperature(float temperature) {
-        return new Agent(this.name, this.systemPrompt, this.memory, this.tools, this.maxIterations, temperature);
+        return new Agent(this.name, this.systemPrompt, this.memory, this.tools, this.maxIterations, temperature, this.toolConcurrency, this.toolCatalog, this.toolGuards, this.compaction);
     }
 
+    /**
+     * The compaction runs before each request, e.g. {@link SlidingWindow} or {@link Summarizing}.
+     */
+    public Agent withCompaction(Compaction compaction) {
+        return new Agent(this.name, this.systemPrompt, this.memory, this.tools, this.maxIterations, this.temperature, this.toolConcurrency, this.toolCatalog, this.toolGuards, compaction);
+    }
 
-    JSONArray toolDefinitions() {
-        var array = new JSONArray();
-        this.tools.values().stream()
-                .map(Tool::toToolDefinition)
-                .forEach(array::put);
-        return array;
+    /**
+     * Tool uses returned within a single turn are executed on virtual threads,
+     * at most toolConcurrency at a time. 1 (default) executes them sequentially.
+     */
+    public Agent withToolConcurrency(int toolConcurrency) {
+        if (toolConcurrency < 1) {
+            throw new IllegalArgumentException("toolConcurrency must be at least 1, was: " + toolConcurrency);
+        }
+        return new Agent(this.name, this.systemPrompt, this.memory, this.tools, this.maxIterations, this.temperature, toolConcurrency, this.toolCatalog, this.toolGuards, this.compaction);
     }
 
     ToolResult executeTool(ToolUse toolUse) {
@@ -77,52 +118,140 @@ public record Agent(String name, String systemPrompt, Memory memory, Map<String,
         if (tool == null) {
             return ToolResult.error(toolUse.id(), "Tool not available: " + toolUse.name());
         }
+        var violations = this.toolCatalog.schema(toolUse.name()).validate(toolUse.input());
+        if (!violations.isEmpty()) {
+            return ToolResult.error(toolUse.id(), "Invalid input for tool %s:\n%s".formatted(toolUse.name(), String.join("\n", violations)));
+        }
+        var guard = this.toolGuards.get(toolUse.name());
+        if (tool instanceof Cacheable cacheable) {
+            return ToolResultCache.execute(cacheable, toolUse, () -> guard.execute(tool, toolUse));
+        }
+        return guard.execute(tool, toolUse);
+    }
+
+    /**
+     * Results are returned in the order of the passed tool uses, regardless of completion order.
+     */
+    List<ToolResult> executeTools(List<ToolUse> toolUses) {
+        if (this.toolConcurrency == 1 || toolUses.size() < 2) {
+            return toolUses.stream()
+                    .map(this::executeTool)
+                    .toList();
+        }
+        var permits = new Semaphore(this.toolConcurrency);
+        try (var scope = Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = new ArrayList<Future<ToolResult>>();
+            for (var toolUse : toolUses) {
+                futures.add(scope.submit(() -> executeWithPermit(permits, toolUse)));
+            }
+            var results = new ArrayList<ToolResult>();
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(awaitResult(futures.get(i), toolUses.get(i)));
+            }
+            return results;
+        }
+    }
+
+    ToolResult executeWithPermit(Semaphore permits, ToolUse toolUse) throws InterruptedException {
+        permits.acquire();
+        try {
+            return executeTool(toolUse);
+        } finally {
+            permits.release();
+        }
+    }
+
+    static ToolResult awaitResult(Future<ToolResult> future, ToolUse toolUse) {
         try {
-            var result = tool.execute(toolUse.input());
-            return ToolResult.success(toolUse.id(), result);
-        } catch (Exception e) {
-            return ToolResult.error(toolUse.id(), e.getMessage());
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ToolResult.error(toolUse.id(), "Tool execution interrupted: " + toolUse.name());
+        } catch (ExecutionException e) {
+            return ToolResult.error(toolUse.id(), e.getCause().getMessage());
         }
     }
 
     public String chat(String userMessage) {
+        return chat(userMessage, null);
+    }
+
+    /**
+     * Streams Claude's responses, passing each text delta to the textListener as it arrives.
+     * Tool uses are executed once the streamed message is complete.
+     */
+    public String chat(String userMessage, Consumer<String> textListener) {
         this.memory.addUserMessage(userMessage);
 
         for (int iteration = 0; iteration < this.maxIterations; iteration++) {
-            var response = Claude.invoke(
-                    this.systemPrompt,
-                    this.memory.toJSON(),
-                    toolDefinitions(),
-                    this.temperature
-            );
-
-            var content = response.getJSONArray("content");
-            var stopReason = response.optString("stop_reason", "end_turn");
-
-            var textParts = extractTextContent(content);
-            var toolUses = extractToolUses(content);
-
-            if (toolUses.isEmpty() || !"tool_use".equals(stopReason)) {
-                if (!textParts.isEmpty()) {
-                    var assistantResponse = String.join("\n", textParts);
-                    this.memory.addAssistantMessage(assistantResponse);
-                    return assistantResponse;
-                }
-                return "";
+            var response = invoke(textListener);
+            var answer = respond(response);
+            if (answer.isPresent()) {
+                return answer.get();
             }
+        }
 
-            addAssistantContentToMemory(content);
+        return MAX_ITERATIONS_REACHED;
+    }
 
-            var toolResults = new JSONArray();
-            for (var toolUse : toolUses) {
-                var result = executeTool(toolUse);
-                toolResults.put(result.toContentBlock());
-            }
+    /**
+     * Non-blocking variant of {@link #chat(String)}. Each tool-use iteration is chained
+     * onto the previous HTTP exchange, tools are executed on virtual threads.
+     */
+    public CompletableFuture<String> chatAsync(String userMessage) {
+        this.memory.addUserMessage(userMessage);
+        return chatAsync(0);
+    }
+
+    CompletableFuture<String> chatAsync(int iteration) {
+        if (iteration >= this.maxIterations) {
+            return CompletableFuture.completedFuture(MAX_ITERATIONS_REACHED);
+        }
+        this.compaction.compact(this.memory);
+        return Claude.invokeAsync(this.systemPrompt, this.memory, this.toolCatalog, this.temperature)
+                .thenApplyAsync(this::respond, TOOL_EXECUTOR)
+                .thenCompose(answer -> answer
+                        .map(CompletableFuture::completedFuture)
+                        .orElseGet(() -> chatAsync(iteration + 1)));
+    }
 
-            this.memory.addMessage(Message.withContentBlocks("user", toolResults));
+    /**
+     * Processes a single Claude response: returns the final answer, or executes
+     * the requested tools, stores their results and returns empty to continue the loop.
+     */
+    Optional<String> respond(JSONObject response) {
+        var content = response.getJSONArray("content");
+        var stopReason = response.optString("stop_reason", "end_turn");
+
+        var textParts = extractTextContent(content);
+        var rejected = new ArrayList<ToolResult>();
+        var toolUses = extractToolUses(content, rejected);
+
+        if ((toolUses.isEmpty() && rejected.isEmpty()) || !"tool_use".equals(stopReason)) {
+            if (!textParts.isEmpty()) {
+                var assistantResponse = String.join("\n", textParts);
+                this.memory.addAssistantMessage(assistantResponse);
+                return Optional.of(assistantResponse);
+            }
+            return Optional.of("");
         }
 
-        return "Max iterations reached";
+        addAssistantContentToMemory(content);
+
+        var toolResults = new JSONArray();
+        executeTools(toolUses).forEach(toolResults::put);
+        rejected.forEach(toolResults::put);
+
+        this.memory.addMessage(Message.withContentBlocks("user", toolResults));
+        return Optional.empty();
+    }
+
+    JSONObject invoke(Consumer<String> textListener) {
+        this.compaction.compact(this.memory);
+        if (textListener == null) {
+            return Claude.invoke(this.systemPrompt, this.memory, this.toolCatalog, this.temperature);
+        }
+        return Claude.stream(this.systemPrompt, this.memory, this.toolCatalog, this.temperature, textListener);
     }
 
     public void clearMemory() {
@@ -140,12 +269,25 @@ public record Agent(String name, String systemPrompt, Memory memory, Map<String,
         return texts;
     }
 
-    List<ToolUse> extractToolUses(JSONArray content) {
+    /**
+     * A malformed tool_use is answered with an error result, so Claude can correct the call.
+     * Without an id it cannot be answered and is skipped.
+     */
+    List<ToolUse> extractToolUses(JSONArray content, List<ToolResult> rejected) {
         var toolUses = new ArrayList<ToolUse>();
         for (int i = 0; i < content.length(); i++) {
             var block = content.getJSONObject(i);
-            if (ToolUse.isToolUse(block)) {
-                toolUses.add(ToolUse.fromJSON(block));
+            if (!ToolUse.isToolUse(block)) {
+                continue;
+            }
+            try {
+                toolUses.add(ToolUse.fromContentBlock(block));
+            } catch (IllegalArgumentException e) {
+                Log.error("malformed tool_use: " + e.getMessage());
+                var id = block.optString("id", null);
+                if (id != null) {
+                    rejected.add(ToolResult.error(id, "Malformed tool_use: " + e.getMessage()));
+                }
             }
         }
         return toolUses;
@@ -0,0 +1,45 @@
+package airhacks.zsmith.agent.control;
+
+import airhacks.zsmith.agent.entity.Memory;
+
+/**
+ * Keeps the conversation within bounds. Invoked by the agent before each request.
+ */
+public interface Compaction {
+
+    Compaction NONE = memory -> {};
+
+    void compact(Memory memory);
+
+    static int estimatedTokens(Memory memory) {
+        var tokens = 0;
+        for (int i = 0; i < memory.size(); i++) {
+            tokens += memory.estimatedTokens(i);
+        }
+        return tokens;
+    }
+
+    /**
+     * Finds the earliest message starting a turn, such that the messages from there on fit into the budget.
+     * Tool uses and their results are never separated. If even the most recent turn exceeds the budget,
+     * the most recent turn is kept.
+     *
+     * @return index of the first message to keep, 0 if nothing can be dropped
+     */
+    static int cutIndex(Memory memory, int tokenBudget) {
+        var messages = memory.messages();
+        var tail = 0;
+        var cut = 0;
+        for (int i = messages.size() - 1; i > 0; i--) {
+            tail += memory.estimatedTokens(i);
+            if (!messages.get(i).startsTurn()) {
+                continue;
+            }
+            if (tail > tokenBudget && cut > 0) {
+                return cut;
+            }
+            cut = i;
+        }
+        return tail + memory.estimatedTokens(0) > tokenBudget ? cut : 0;
+    }
+}
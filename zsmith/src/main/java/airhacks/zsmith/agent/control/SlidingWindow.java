@@ -0,0 +1,19 @@
+package airhacks.zsmith.agent.control;
+
+import java.util.List;
+
+import airhacks.zsmith.agent.entity.Memory;
+
+/**
+ * Drops the oldest turns once the conversation exceeds the token budget.
+ */
+public record SlidingWindow(int tokenBudget) implements Compaction {
+
+    @Override
+    public void compact(Memory memory) {
+        var cut = Compaction.cutIndex(memory, this.tokenBudget);
+        if (cut > 0) {
+            memory.replacePrefix(cut, List.of());
+        }
+    }
+}
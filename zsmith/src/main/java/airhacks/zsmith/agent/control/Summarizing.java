@@ -0,0 +1,92 @@
+package airhacks.zsmith.agent.control;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import airhacks.zsmith.agent.entity.Memory;
+import airhacks.zsmith.agent.entity.Message;
+import airhacks.zsmith.claude.control.Claude;
+import airhacks.zsmith.logging.control.Log;
+
+/**
+ * Once the conversation exceeds thresholdTokens, the turns older than the most recent keepTokens
+ * are summarized by Claude on a virtual thread. Requests continue with the full conversation
+ * until the summary is available, then the summarized turns are replaced with it.
+ */
+public class Summarizing implements Compaction {
+
+    static final String SYSTEM_PROMPT = """
+            Summarize the following conversation between a user and an assistant.
+            Keep facts, decisions, tool results and open questions. Be concise.
+            """;
+    static final Executor SUMMARIZER = Executors.newVirtualThreadPerTaskExecutor();
+
+    record Pending(int count, Message lastSummarized, CompletableFuture<String> summary) {}
+
+    final int thresholdTokens;
+    final int keepTokens;
+    Pending pending;
+
+    public Summarizing(int thresholdTokens, int keepTokens) {
+        this.thresholdTokens = thresholdTokens;
+        this.keepTokens = keepTokens;
+    }
+
+    @Override
+    public synchronized void compact(Memory memory) {
+        if (this.pending != null) {
+            if (!this.pending.summary().isDone()) {
+                return;
+            }
+            apply(memory, this.pending);
+            this.pending = null;
+            return;
+        }
+        if (Compaction.estimatedTokens(memory) <= this.thresholdTokens) {
+            return;
+        }
+        var cut = Compaction.cutIndex(memory, this.keepTokens);
+        if (cut == 0) {
+            return;
+        }
+        var summarized = new ArrayList<>(memory.messages().subList(0, cut));
+        var summary = CompletableFuture.supplyAsync(() -> summarize(summarized), SUMMARIZER);
+        this.pending = new Pending(cut, summarized.get(cut - 1), summary);
+    }
+
+    /**
+     * The summary is only applied if the summarized messages are still in place, e.g. memory was not cleared meanwhile.
+     */
+    static void apply(Memory memory, Pending pending) {
+        var messages = memory.messages();
+        if (messages.size() < pending.count() || messages.get(pending.count() - 1) != pending.lastSummarized()) {
+            return;
+        }
+        try {
+            var summary = pending.summary().join();
+            memory.replacePrefix(pending.count(), List.of(Message.user("Summary of the earlier conversation:\n" + summary)));
+        } catch (RuntimeException e) {
+            Log.error("cannot summarize conversation: " + e.getMessage());
+        }
+    }
+
+    static String summarize(List<Message> messages) {
+        var transcript = messages.stream()
+                .map(Message::toJSONString)
+                .collect(Collectors.joining("\n"));
+        var response = Claude.invoke(SYSTEM_PROMPT, transcript, 0.0f);
+        var content = response.getJSONArray("content");
+        var text = new StringBuilder();
+        for (int i = 0; i < content.length(); i++) {
+            var block = content.getJSONObject(i);
+            if ("text".equals(block.optString("type"))) {
+                text.append(block.getString("text"));
+            }
+        }
+        return text.toString();
+    }
+}
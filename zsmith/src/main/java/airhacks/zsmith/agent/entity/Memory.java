@@ -2,15 +2,23 @@ package airhacks.zsmith.agent.entity;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 import org.json.JSONArray;
+import org.json.JSONByteWritable;
+import org.json.JSONByteWriter;
+import org.json.JSONTokener;
 
-public record Memory(List<Message> messages) {
+public record Memory(List<Message> messages, MessageBuffer buffer) {
 
     public Memory {
         messages = new ArrayList<>(messages);
     }
 
+    public Memory(List<Message> messages) {
+        this(messages, new MessageBuffer());
+    }
+
     public Memory() {
         this(new ArrayList<>());
     }
@@ -29,27 +37,93 @@ public record Memory(List<Message> messages) {
 
     public void clear() {
         this.messages.clear();
+        this.buffer.clear();
     }
 
     public int size() {
         return this.messages.size();
     }
 
+    /**
+     * Replaces the first count messages, e.g. with a summary. The serialized buffer is rebuilt with the next request.
+     */
+    public void replacePrefix(int count, List<Message> replacement) {
+        var prefix = this.messages.subList(0, count);
+        prefix.clear();
+        prefix.addAll(replacement);
+        this.buffer.clear();
+    }
+
+    /**
+     * Rough estimation (4 characters per token) based on the serialized message,
+     * buffered messages are measured in UTF-8 bytes and not serialized again.
+     */
+    public int estimatedTokens(int index) {
+        var length = index < this.buffer.size()
+                ? this.buffer.length(index)
+                : this.messages.get(index).toJSONString().length();
+        return length / 4;
+    }
 
+    /**
+     * @return the messages as JSONArray, each message serializes itself with its codec
+     */
     public JSONArray toJSON() {
-        var array = new JSONArray();
-        this.messages.stream()
-                .map(Message::toJSON)
-                .forEach(array::put);
+        var array = new JSONArray(this.messages.size());
+        this.messages.forEach(array::put);
         return array;
     }
 
-    public static Memory fromJSON(JSONArray json) {
-        var messages = new ArrayList<Message>();
-        for (int i = 0; i < json.length(); i++) {
-            var obj = json.getJSONObject(i);
-            messages.add(Message.fromJSON(obj));
+    /**
+     * Serializes the conversation for a request. Messages already sent are taken from the buffer,
+     * only new messages are serialized. The last message is passed through lastMessage first
+     * (e.g. to add a cache breakpoint) and is buffered with the next request.
+     * A {@link JSONByteWriter} copies the buffered UTF-8 bytes without decoding them.
+     */
+    public JSONByteWritable serialized(UnaryOperator<Message> lastMessage) {
+        var count = this.messages.size();
+        if (count == 0) {
+            return new Serialized(this.buffer.bytes(), 0, null);
+        }
+        for (int i = this.buffer.size(); i < count - 1; i++) {
+            this.buffer.append(this.messages.get(i));
         }
-        return new Memory(messages);
+        var last = lastMessage.apply(this.messages.get(count - 1));
+        return new Serialized(this.buffer.bytes(), this.buffer.end(count - 1), last);
+    }
+
+    /**
+     * The buffered messages up to prefixEnd, followed by the last message (if any).
+     */
+    record Serialized(byte[] prefix, int prefixEnd, Message last) implements JSONByteWritable {
+
+        static final byte[] OPEN = { '[' };
+        static final byte[] SEPARATOR = { ',' };
+        static final byte[] CLOSE = { ']' };
+
+        @Override
+        public void writeJSON(JSONByteWriter writer) {
+            writer.raw(OPEN, 0, 1);
+            writer.raw(this.prefix, 0, this.prefixEnd);
+            if (this.last != null) {
+                if (this.prefixEnd > 0) {
+                    writer.raw(SEPARATOR, 0, 1);
+                }
+                writer.value(this.last);
+            }
+            writer.raw(CLOSE, 0, 1);
+        }
+
+        @Override
+        public String toJSONString() {
+            return new JSONByteWriter(this.prefixEnd + 256).value(this).toString();
+        }
+    }
+
+    /**
+     * Reads the messages with their codec, the tokener is positioned before the array.
+     */
+    public static Memory fromJSON(JSONTokener tokener) {
+        return new Memory(Message.CODEC.readArray(tokener));
     }
 }
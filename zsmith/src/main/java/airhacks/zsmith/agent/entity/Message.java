@@ -1,26 +1,57 @@
 package airhacks.zsmith.agent.entity;
 
 import org.json.JSONArray;
+import org.json.JSONByteWritable;
+import org.json.JSONByteWriter;
 import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.json.RecordCodec;
 
-public record Message(String role, Object content) {
+import airhacks.zsmith.tools.entity.ToolResult;
 
-    public JSONObject toJSON() {
-        var json = new JSONObject().put("role", this.role);
-        if (this.content instanceof String s) {
-            json.put("content", s);
-        } else if (this.content instanceof JSONArray arr) {
-            json.put("content", arr);
-        } else {
-            json.put("content", this.content);
+/**
+ * As {@link JSONByteWritable} a message is written directly into requests, without an intermediate JSONObject.
+ * The content is a String or a JSONArray of content blocks, e.g. JSONObjects or {@link ToolResult}s.
+ */
+public record Message(String role, Object content) implements JSONByteWritable {
+
+    static final RecordCodec<Message> CODEC = RecordCodec.of(Message.class);
+
+    @Override
+    public void writeJSON(JSONByteWriter writer) {
+        CODEC.write(this, writer);
+    }
+
+    @Override
+    public String toJSONString() {
+        return CODEC.toJSONString(this);
+    }
+
+    /**
+     * A user message which is not a tool_result, the only safe place to cut a conversation
+     * without separating a tool_use from its result.
+     */
+    public boolean startsTurn() {
+        if (!"user".equals(this.role)) {
+            return false;
+        }
+        if (this.content instanceof JSONArray blocks) {
+            for (int i = 0; i < blocks.length(); i++) {
+                var block = blocks.opt(i);
+                if (block instanceof ToolResult
+                        || (block instanceof JSONObject object && "tool_result".equals(object.optString("type")))) {
+                    return false;
+                }
+            }
         }
-        return json;
+        return true;
     }
 
-    public static Message fromJSON(JSONObject json) {
-        var role = json.getString("role");
-        var content = json.get("content");
-        return new Message(role, content);
+    /**
+     * Reads the message with the codec, the tokener is positioned before the message object.
+     */
+    public static Message fromJSON(JSONTokener tokener) {
+        return CODEC.read(tokener);
     }
 
     public static Message user(String content) {
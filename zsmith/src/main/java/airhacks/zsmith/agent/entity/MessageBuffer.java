@@ -0,0 +1,87 @@
+package airhacks.zsmith.agent.entity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.json.JSONByteWriter;
+
+/**
+ * Append-only buffer of serialized messages as UTF-8 bytes, separated by commas.
+ * Each message is serialized once, requests copy the buffered prefix without encoding it again.
+ * Buffered bytes are never overwritten, growing and clearing replace the array,
+ * so a prefix handed out with {@link #bytes()} stays valid.
+ */
+public class MessageBuffer {
+
+    byte[] json = new byte[4096];
+    int length;
+    int[] offsets = new int[16];
+    int size;
+    /** reused to serialize new messages */
+    final JSONByteWriter writer = new JSONByteWriter();
+
+    public void append(Message message) {
+        this.writer.reset();
+        var serialized = this.writer.value(message).toByteBuffer();
+        var separator = this.size > 0 ? 1 : 0;
+        var required = this.length + separator + serialized.remaining();
+        if (required > this.json.length) {
+            this.json = Arrays.copyOf(this.json, Math.max(this.json.length * 2, required));
+        }
+        if (separator > 0) {
+            this.json[this.length++] = ',';
+        }
+        if (this.size == this.offsets.length) {
+            this.offsets = Arrays.copyOf(this.offsets, this.size * 2);
+        }
+        this.offsets[this.size++] = this.length;
+        var count = serialized.remaining();
+        serialized.get(this.json, this.length, count);
+        this.length += count;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return length in bytes of the serialized message at index
+     */
+    public int length(int index) {
+        var end = index + 1 < this.size ? this.offsets[index + 1] - 1 : this.length;
+        return end - this.offsets[index];
+    }
+
+    /**
+     * @return the buffered bytes, valid up to {@link #end(int)}
+     */
+    public byte[] bytes() {
+        return this.json;
+    }
+
+    /**
+     * @return index after the first count serialized messages, comma separated, without enclosing brackets
+     */
+    public int end(int count) {
+        if (count <= 0) {
+            return 0;
+        }
+        if (count >= this.size) {
+            return this.length;
+        }
+        return this.offsets[count] - 1;
+    }
+
+    /**
+     * @return the first count serialized messages decoded, for consumers without a {@link JSONByteWriter}
+     */
+    public String prefix(int count) {
+        return new String(this.json, 0, this.end(count), StandardCharsets.UTF_8);
+    }
+
+    public void clear() {
+        this.json = new byte[this.json.length];
+        this.length = 0;
+        this.size = 0;
+    }
+}
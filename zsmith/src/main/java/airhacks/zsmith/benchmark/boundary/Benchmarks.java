@@ -0,0 +1,136 @@
+package airhacks.zsmith.benchmark.boundary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONByteWriter;
+import org.json.JSONObject;
+import org.json.JSONParserConfiguration;
+import org.json.JSONReader;
+import org.json.KeyTable;
+
+import airhacks.zsmith.agent.boundary.Agent;
+import airhacks.zsmith.benchmark.control.Fixtures;
+import airhacks.zsmith.benchmark.control.Harness;
+import airhacks.zsmith.stub.boundary.ClaudeStub;
+import airhacks.zsmith.tools.control.CalculatorTool;
+import airhacks.zsmith.tools.control.CurrentTimeTool;
+import airhacks.zsmith.tools.control.InputSchema;
+
+/**
+ * Benchmarks of the agent loop, Memory and the JSON layer.
+ * The agent runs against an in-process {@link ClaudeStub}. Allocations are measured on the calling thread,
+ * allocations of the HttpClient's and the stub's threads are not included.
+ */
+public interface Benchmarks {
+
+    static void main(String... args) {
+        json();
+        memory();
+        tools();
+        agent();
+        System.exit(0);
+    }
+
+    static void json() {
+        Harness.run("JSONObject parse response", () -> new JSONObject(Fixtures.RESPONSE));
+        var bytes = Fixtures.RESPONSE.getBytes(StandardCharsets.UTF_8);
+        Harness.run("JSONObject parse response bytes", () -> new JSONObject(ByteBuffer.wrap(bytes)));
+        var keyTable = new JSONParserConfiguration().withKeyTable(new KeyTable(64));
+        Harness.run("JSONObject parse response bytes, key table", () -> new JSONObject(ByteBuffer.wrap(bytes), keyTable));
+        var lazy = new JSONParserConfiguration().withLazyParsing(true);
+        Harness.run("JSONObject parse response bytes, lazy", () -> new JSONObject(ByteBuffer.wrap(bytes), lazy));
+        Harness.run("JSONReader pull stop_reason from stream", () -> stopReason(new ByteArrayInputStream(bytes)));
+        var response = new JSONObject(Fixtures.RESPONSE);
+        Harness.run("JSONObject serialize response", response::toString);
+        var writer = new JSONByteWriter();
+        Harness.run("JSONByteWriter serialize response", () -> {
+            writer.reset();
+            return writer.value(response).size();
+        });
+        streamed();
+    }
+
+    /**
+     * Pulls a single field, skipping the content without building it.
+     */
+    static String stopReason(InputStream body) throws IOException {
+        try (var reader = new JSONReader(body)) {
+            reader.next();
+            while (reader.next() == JSONReader.Event.FIELD_NAME) {
+                var field = reader.getString();
+                reader.next();
+                if ("stop_reason".equals(field)) {
+                    return reader.getString();
+                }
+                reader.skipChildren();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Writes a frozen conversation larger than the stream buffer, preceded by other content,
+     * so the cached bytes cross the buffer boundary.
+     */
+    static void streamed() {
+        var conversation = Fixtures.memory(100).toJSON().freeze();
+        var envelope = new JSONObject()
+                .put("system", "x".repeat(8180))
+                .put("messages", conversation)
+                .put("breakpoint", new JSONObject().put("type", "ephemeral").freeze());
+        var expected = envelope.toString();
+        var out = new ByteArrayOutputStream();
+        new JSONByteWriter(out).value(envelope).flush();
+        if (!expected.equals(out.toString(StandardCharsets.UTF_8))) {
+            throw new IllegalStateException("streamed JSONByteWriter output differs from JSONObject.toString()");
+        }
+        Harness.run("JSONByteWriter stream frozen 100 messages", () -> {
+            new JSONByteWriter(OutputStream.nullOutputStream()).value(envelope).flush();
+            return envelope;
+        });
+    }
+
+    static void memory() {
+        for (var size : new int[] { 10, 100, 1000 }) {
+            var memory = Fixtures.memory(size);
+            Harness.run("Memory.toJSON %d messages".formatted(size), () -> memory.toJSON().toString());
+            var writer = new JSONByteWriter();
+            Harness.run("Memory.serialized %d messages".formatted(size), () -> {
+                writer.reset();
+                return writer.value(memory.serialized(message -> message)).size();
+            });
+        }
+    }
+
+    static void tools() {
+        var calculator = new CalculatorTool();
+        Harness.run("Tool.toToolDefinition", calculator::toToolDefinition);
+        var schema = InputSchema.compile(calculator.inputSchema());
+        var input = new JSONObject("{\"operation\":\"add\",\"a\":1,\"b\":2.5}");
+        Harness.run("InputSchema.validate", () -> schema.validate(input));
+    }
+
+    static void agent() {
+        var stub = ClaudeStub.start();
+        System.setProperty("claude.uri", stub.uri().toString());
+        System.setProperty("anthropic.version", System.getProperty("anthropic.version", "2023-06-01"));
+        System.setProperty("anthropic.api.key", System.getProperty("anthropic.api.key", "benchmark"));
+        try {
+            var agent = new Agent("benchmark", "You are a helpful assistant.")
+                    .withTool(new CalculatorTool())
+                    .withTool(new CurrentTimeTool());
+            Harness.run("Agent.chat with tool use (stub)", () -> {
+                agent.clearMemory();
+                return agent.chat("What is 42 multiplied by 17?");
+            });
+        } finally {
+            stub.stop();
+        }
+    }
+}
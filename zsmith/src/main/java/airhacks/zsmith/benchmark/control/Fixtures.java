@@ -0,0 +1,57 @@
+package airhacks.zsmith.benchmark.control;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import airhacks.zsmith.agent.entity.Memory;
+import airhacks.zsmith.agent.entity.Message;
+
+/**
+ * Representative Messages API payloads.
+ */
+public interface Fixtures {
+
+    String RESPONSE = """
+            {
+              "id": "msg_01XFDUDYJgAACzvnptvVoYEL",
+              "type": "message",
+              "role": "assistant",
+              "model": "claude-opus-4-6",
+              "content": [
+                { "type": "text", "text": "I'll calculate that and check the current time for you." },
+                { "type": "tool_use", "id": "toolu_01A09q90qw90lq917835lq9", "name": "calculator",
+                  "input": { "operation": "multiply", "a": 42, "b": 17 } },
+                { "type": "tool_use", "id": "toolu_01B19q90qw90lq917835lq0", "name": "current_time", "input": {} }
+              ],
+              "stop_reason": "tool_use",
+              "stop_sequence": null,
+              "usage": {
+                "input_tokens": 2095,
+                "output_tokens": 503,
+                "cache_creation_input_tokens": 0,
+                "cache_read_input_tokens": 1824
+              }
+            }
+            """;
+
+    /**
+     * Alternating user questions, assistant tool uses, tool results and assistant answers.
+     */
+    static Memory memory(int messageCount) {
+        var memory = new Memory();
+        var response = new JSONObject(RESPONSE);
+        for (int i = 0; memory.size() < messageCount; i++) {
+            switch (i % 4) {
+                case 0 -> memory.addUserMessage("What is 42 multiplied by 17? Also, what time is it now? (" + i + ")");
+                case 1 -> memory.addMessage(Message.withContentBlocks("assistant", response.getJSONArray("content")));
+                case 2 -> memory.addMessage(Message.withContentBlocks("user", new JSONArray()
+                        .put(new JSONObject()
+                                .put("type", "tool_result")
+                                .put("tool_use_id", "toolu_01A09q90qw90lq917835lq9")
+                                .put("content", "714.0"))));
+                default -> memory.addAssistantMessage("42 multiplied by 17 is 714. The current time is 2026-02-22 10:15:00.");
+            }
+        }
+        return memory;
+    }
+}
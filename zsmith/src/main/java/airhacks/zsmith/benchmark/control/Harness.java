@@ -0,0 +1,79 @@
+package airhacks.zsmith.benchmark.control;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+
+/**
+ * Minimal JMH-style measurement: time-boxed warm-up and measurement iterations,
+ * reporting average time and allocated bytes per operation of the calling thread.
+ *
+ * <pre>
+ * -Dbenchmark.warmup.iterations=3
+ * -Dbenchmark.measurement.iterations=5
+ * -Dbenchmark.iteration.ms=1000
+ * </pre>
+ */
+public interface Harness {
+
+    int WARMUP_ITERATIONS = Integer.getInteger("benchmark.warmup.iterations", 3);
+    int MEASUREMENT_ITERATIONS = Integer.getInteger("benchmark.measurement.iterations", 5);
+    long ITERATION_NANOS = Integer.getInteger("benchmark.iteration.ms", 1000) * 1_000_000L;
+
+    com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    record Result(String name, long operations, double nanosPerOperation, double bytesPerOperation) {
+
+        @Override
+        public String toString() {
+            return "%-45s %12.1f ns/op %12.1f B/op %10d ops".formatted(this.name, this.nanosPerOperation, this.bytesPerOperation, this.operations);
+        }
+    }
+
+    /**
+     * Consumes results, so the JIT cannot eliminate the measured code.
+     */
+    final class Blackhole {
+        static volatile int sink;
+
+        static void consume(Object result) {
+            sink ^= System.identityHashCode(result);
+        }
+    }
+
+    static Result run(String name, Callable<?> operation) {
+        try {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                iteration(name, operation);
+            }
+            var operations = 0L;
+            var nanos = 0L;
+            var bytes = 0L;
+            for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+                var result = iteration(name, operation);
+                operations += result.operations();
+                nanos += (long) (result.nanosPerOperation() * result.operations());
+                bytes += (long) (result.bytesPerOperation() * result.operations());
+            }
+            var result = new Result(name, operations, (double) nanos / operations, (double) bytes / operations);
+            System.out.println(result);
+            return result;
+        } catch (Exception e) {
+            throw new IllegalStateException("benchmark failed: " + name, e);
+        }
+    }
+
+    static Result iteration(String name, Callable<?> operation) throws Exception {
+        var allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        var start = System.nanoTime();
+        var deadline = start + ITERATION_NANOS;
+        var operations = 0L;
+        long now;
+        do {
+            Blackhole.consume(operation.call());
+            operations++;
+            now = System.nanoTime();
+        } while (now < deadline);
+        var allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return new Result(name, operations, (double) (now - start) / operations, (double) allocated / operations);
+    }
+}
@@ -4,15 +4,27 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
 import java.util.EnumSet;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import org.json.JSONArray;
+import org.json.JSONByteTokener;
+import org.json.JSONByteWritable;
+import org.json.JSONByteWriter;
 import org.json.JSONObject;
+import org.json.JSONParserConfiguration;
+import org.json.KeyTable;
+import org.json.RecordCodec;
 
 import airhacks.zcfg.ZCfg;
+import airhacks.zsmith.agent.entity.Memory;
+import airhacks.zsmith.agent.entity.Message;
 import airhacks.zsmith.logging.control.Log;
 
 
@@ -63,77 +75,196 @@ public interface Claude {
         }
     }
 
-    HttpClient client = HttpClient.newHttpClient();
-    URI uri = URI.create("https://api.anthropic.com/v1/messages");
-    Models currentModel = Models.fromSystemProperty();
+    /**
+     * The Messages API request envelope. Null components and stream=false are not sent.
+     *
+     * @param system a String or the system blocks with cache breakpoint
+     * @param messages a JSONArray or the pre-serialized {@link JSONByteWritable} conversation, copied into the request as UTF-8 bytes
+     * @param tools the frozen definitions, null without tools
+     */
+    record Request(String model, int maxTokens, float temperature, Object system, Object messages, JSONArray tools, boolean stream) {
 
-    static JSONObject invoke(String system, JSONArray messages, JSONArray tools, float temperature) {
-        var payloadJSON = claudeMessage(messages, temperature, system);
-        payloadJSON.put("model", currentModel.modelName());
-        if (tools != null && !tools.isEmpty()) {
-            payloadJSON.put("tools", tools);
+        Request streaming() {
+            return new Request(this.model, this.maxTokens, this.temperature, this.system, this.messages, this.tools, true);
         }
-        var payload = payloadJSON.toString();
-        Log.debug(payload);
-        var answer = invoke(payload);
-        return new JSONObject(answer);
     }
 
-    public static JSONObject invoke(String system, String user, float temperature) {
-        var enclosedPrompt = messagePrompt(user);
-        Log.debug(enclosedPrompt.toString());
-        var payloadJSON = Claude.claudeMessage(enclosedPrompt, temperature, system);
-        payloadJSON.put("model", currentModel.modelName());
-        var payload = payloadJSON.toString();
-        Log.debug(payload);
-        var answer = invoke(payload);
-        return new JSONObject(answer);
+    RecordCodec<Request> REQUEST_CODEC = RecordCodec.of(Request.class);
+
+    HttpClient client = HttpClients.create();
+    URI uri = URI.create(ZCfg.string("claude.uri", "https://api.anthropic.com/v1/messages"));
+    Models currentModel = Models.fromSystemProperty();
+    /** lazy parsing, with canonical instances of the keys of responses and stream events shared by all parses */
+    JSONParserConfiguration RESPONSE_PARSING = new JSONParserConfiguration()
+            .withLazyParsing(true)
+            .withKeyTable(new KeyTable(256, "id", "type", "role", "model", "content", "text", "name", "input",
+                    "tool_use_id", "stop_reason", "stop_sequence", "usage", "input_tokens", "output_tokens",
+                    "cache_read_input_tokens", "cache_creation_input_tokens", "error", "message", "index",
+                    "delta", "content_block", "partial_json"));
+    /** initial request buffer size, the buffer grows with longer conversations */
+    int PAYLOAD_CAPACITY = 16 * 1024;
+
+    static JSONObject invoke(String system, Memory memory, ToolCatalog tools, float temperature) {
+        var payload = serialize(payload(system, memory, tools, temperature));
+        return exchange(payload);
+    }
+
+    static CompletableFuture<JSONObject> invokeAsync(String system, Memory memory, ToolCatalog tools, float temperature) {
+        var payload = serialize(payload(system, memory, tools, temperature));
+        return RateLimiter.acquireAsync(payload.size())
+                .thenCompose(reservation -> invokeAsync(payload)
+                        .thenApply(response -> completed(reservation, response)));
+    }
+
+    /**
+     * Streams the response as server-sent events. Text deltas are passed to the
+     * textListener as they arrive, the returned message has the same structure
+     * as a non-streaming response.
+     */
+    static JSONObject stream(String system, Memory memory, ToolCatalog tools, float temperature, Consumer<String> textListener) {
+        var payload = serialize(payload(system, memory, tools, temperature).streaming());
+        var reservation = RateLimiter.acquire(payload.size());
+        return completed(reservation, stream(payload, textListener));
+    }
+
+    /**
+     * Admits the call through the {@link RateLimiter} and reports the actual usage back.
+     * Cache usage is accumulated by {@link PromptCache}.
+     */
+    static JSONObject exchange(JSONByteWriter payload) {
+        var reservation = RateLimiter.acquire(payload.size());
+        var answer = invokeAndRead(payload);
+        return completed(reservation, answer);
     }
 
-    static JSONObject claudeMessage(JSONArray messages, float temperature, String system) {
-        return new JSONObject()
-                .put("max_tokens", MAX_TOKENS)
-                .put("messages", messages)
-                .put("temperature", temperature)
-                .put("system", system);
+    static JSONObject completed(RateLimiter.Reservation reservation, JSONObject response) {
+        RateLimiter.complete(reservation, response);
+        PromptCache.record(response);
+        return response;
+    }
 
+    static Request payload(String system, Memory memory, ToolCatalog tools, float temperature) {
+        return envelope(memory.serialized(PromptCache::lastMessage), tools != null && !tools.isEmpty() ? tools.definitions() : null, temperature, system);
     }
 
-    static JSONArray messagePrompt(String user) {
-        return new JSONArray()
-                .put(message("user", user));
+    public static JSONObject invoke(String system, String user, float temperature) {
+        var messages = new JSONArray().put(PromptCache.lastMessage(Message.user(user)));
+        Log.debug(messages.toString());
+        return exchange(serialize(envelope(messages, null, temperature, system)));
+    }
 
+    /**
+     * Serializes the payload directly into UTF-8 bytes. Each request gets its own buffer,
+     * since the HttpClient reads it asynchronously and again for each retry.
+     */
+    static JSONByteWriter serialize(Request payload) {
+        var bytes = REQUEST_CODEC.write(payload, new JSONByteWriter(PAYLOAD_CAPACITY));
+        Log.debug(bytes.toByteBuffer());
+        return bytes;
+    }
+
+    /**
+     * Publishes the serialized payload from its buffer, without copying or decoding it.
+     */
+    static BodyPublisher publisher(JSONByteWriter payload) {
+        var bytes = payload.toByteBuffer();
+        return BodyPublishers.ofByteArray(bytes.array(), bytes.arrayOffset(), bytes.remaining());
     }
 
-    static JSONObject message(String role, String content) {
-        return new JSONObject()
-                .put("role", role)
-                .put("content", content);
+    /**
+     * @param messages a JSONArray or the pre-serialized {@link JSONByteWritable} conversation, copied into the request as UTF-8 bytes
+     */
+    static Request envelope(Object messages, JSONArray tools, float temperature, String system) {
+        return new Request(currentModel.modelName(), MAX_TOKENS, temperature, PromptCache.system(system), messages, tools, false);
     }
 
-    /*
-     * curl https://api.anthropic.com/v1/messages --header "x-api-key: YOUR_API_KEY"
-     * ...
+    /**
+     * Parses the response body's bytes with a {@link JSONByteTokener}, without decoding it into a String.
      */
-    static String invoke(String message) {
+    static JSONObject invokeAndRead(JSONByteWriter payload) {
         Log.user("using claude model: %s".formatted(currentModel.modelName()));
-        var request = HttpRequest.newBuilder(uri)
-                .POST(BodyPublishers.ofString(message))
-                .header("x-api-key", ANTHROPIC_API_KEY)
-                .header("content-type", "application/json")
-                .header("anthropic-version", ANTHROPIC_VERSION)
-                .build();
+        var request = request(publisher(payload));
+        try {
+            var response = Retry.send(client, request, BodyHandlers.ofByteArray());
+            return read(response.statusCode(), response.body());
+        } catch (IOException | InterruptedException e) {
+            Log.ERROR.out(e.getMessage());
+            throw new IllegalStateException("cannot communicate with claude", e);
+        }
+    }
+
+    static CompletableFuture<JSONObject> invokeAsync(JSONByteWriter payload) {
+        Log.user("using claude model: %s".formatted(currentModel.modelName()));
+        var request = request(publisher(payload));
+        return Retry.sendAsync(client, request, BodyHandlers.ofByteArray())
+                .thenApply(response -> read(response.statusCode(), response.body()));
+    }
+
+    /**
+     * Parses the response lazily, nested values like tool inputs are parsed when the agent accesses them.
+     */
+    static JSONObject read(int statusCode, byte[] body) {
+        if (statusCode / 100 != 2) {
+            throw failed(statusCode, new String(body, StandardCharsets.UTF_8));
+        }
+        return new JSONObject(new JSONByteTokener(body, 0, body.length, RESPONSE_PARSING), RESPONSE_PARSING);
+    }
+
+    /**
+     * Error responses remaining after the retries carry no content, the agent cannot continue.
+     */
+    static IllegalStateException failed(int statusCode, String body) {
+        if (statusCode == 529) {
+            Log.error("claude is overloaded, please try again later");
+        }
+        Log.error("claude responded with HTTP %d: %s".formatted(statusCode, body));
+        return new IllegalStateException("claude responded with HTTP %d: %s".formatted(statusCode, body));
+    }
+
+    static JSONObject stream(JSONByteWriter payload, Consumer<String> textListener) {
+        Log.user("streaming claude model: %s".formatted(currentModel.modelName()));
+        var request = request(publisher(payload));
         try {
-            var response = client.send(request, BodyHandlers.ofString());
-            var body = response.body();
-            if (response.statusCode() == 529) {
-                Log.error("claude is overloaded, please try again later " + body);
+            var response = Retry.send(client, request, BodyHandlers.ofLines());
+            try (var lines = response.body()) {
+                if (response.statusCode() != 200) {
+                    throw failed(response.statusCode(), String.join("\n", lines.toList()));
+                }
+                var streamedMessage = new StreamedMessage(textListener);
+                lines.forEach(streamedMessage::line);
+                return streamedMessage.message();
             }
-            return body;
         } catch (IOException | InterruptedException e) {
             Log.ERROR.out(e.getMessage());
             throw new IllegalStateException("cannot communicate with claude", e);
         }
     }
 
+    /**
+     * Pre-establishes the (TLS) connection, so the first request does not pay the handshake latency.
+     * The response status is irrelevant, the connection remains in the client's pool.
+     */
+    static CompletableFuture<Void> warmUp() {
+        var request = HttpRequest.newBuilder(uri)
+                .method("HEAD", BodyPublishers.noBody())
+                .timeout(HttpClients.CONNECT_TIMEOUT)
+                .build();
+        return client.sendAsync(request, BodyHandlers.discarding())
+                .thenAccept(response -> Log.debug("connection to %s established: %d".formatted(uri.getHost(), response.statusCode())))
+                .exceptionally(e -> {
+                    Log.error("warm-up failed: " + e.getMessage());
+                    return null;
+                });
+    }
+
+    static HttpRequest request(BodyPublisher body) {
+        return HttpRequest.newBuilder(uri)
+                .POST(body)
+                .timeout(HttpClients.REQUEST_TIMEOUT)
+                .header("x-api-key", ANTHROPIC_API_KEY)
+                .header("content-type", "application/json")
+                .header("anthropic-version", ANTHROPIC_VERSION)
+                .build();
+    }
+
 }
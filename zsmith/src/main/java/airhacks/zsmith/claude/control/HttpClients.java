@@ -0,0 +1,44 @@
+package airhacks.zsmith.claude.control;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+import airhacks.zcfg.ZCfg;
+
+/**
+ * Creates the HttpClient shared by all Claude calls, configured via ZCfg:
+ *
+ * <pre>
+ * claude.http.version=HTTP_2
+ * claude.http.connect.timeout.ms=10000
+ * claude.http.request.timeout.ms=600000
+ * claude.http.virtual.threads=true
+ * claude.http.keepalive.timeout.s=1200
+ * claude.http.warmup=false
+ * </pre>
+ */
+public interface HttpClients {
+
+    HttpClient.Version VERSION = HttpClient.Version.valueOf(ZCfg.string("claude.http.version", "HTTP_2"));
+    Duration CONNECT_TIMEOUT = Duration.ofMillis(ZCfg.integer("claude.http.connect.timeout.ms", 10_000));
+    Duration REQUEST_TIMEOUT = Duration.ofMillis(ZCfg.integer("claude.http.request.timeout.ms", 600_000));
+    boolean VIRTUAL_THREADS = ZCfg.bool("claude.http.virtual.threads", true);
+    String KEEPALIVE_TIMEOUT_S = ZCfg.string("claude.http.keepalive.timeout.s");
+    boolean WARMUP = ZCfg.bool("claude.http.warmup", false);
+
+    static HttpClient create() {
+        if (KEEPALIVE_TIMEOUT_S != null) {
+            // read by the JDK's connection pool when the first client is created
+            System.setProperty("jdk.httpclient.keepalive.timeout", KEEPALIVE_TIMEOUT_S);
+        }
+        var builder = HttpClient.newBuilder()
+                .version(VERSION)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NEVER);
+        if (VIRTUAL_THREADS) {
+            builder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        return builder.build();
+    }
+}
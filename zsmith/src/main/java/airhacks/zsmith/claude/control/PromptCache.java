@@ -0,0 +1,135 @@
+package airhacks.zsmith.claude.control;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+import airhacks.zcfg.ZCfg;
+import airhacks.zsmith.agent.entity.Message;
+import airhacks.zsmith.logging.control.Log;
+
+/**
+ * Places cache_control breakpoints on the system prompt, the last tool definition
+ * and the last content block of the conversation, so every iteration of the tool loop
+ * reads the previous prefix from Claude's prompt cache.
+ * Enabled by default, disable with claude.prompt.caching=false.
+ *
+ * The passed structures are never modified, marked elements are copies.
+ * The breakpoint and the system blocks are frozen, so each request writes their cached bytes.
+ */
+public interface PromptCache {
+
+    boolean ENABLED = ZCfg.bool("claude.prompt.caching", true);
+
+    LongAdder INPUT_TOKENS = new LongAdder();
+    LongAdder CACHE_READ_INPUT_TOKENS = new LongAdder();
+    LongAdder CACHE_CREATION_INPUT_TOKENS = new LongAdder();
+
+    JSONObject BREAKPOINT = new JSONObject().put("type", "ephemeral").freeze();
+
+    record SystemBlocks(String system, JSONArray blocks) {}
+
+    /** the blocks of the most recent system prompt, agents send the same prompt with each iteration */
+    AtomicReference<SystemBlocks> SYSTEM_BLOCKS = new AtomicReference<>(new SystemBlocks(null, null));
+
+    static JSONObject breakpoint() {
+        return BREAKPOINT;
+    }
+
+    static Object system(String system) {
+        if (!ENABLED || system == null || system.isBlank()) {
+            return system;
+        }
+        var cached = SYSTEM_BLOCKS.get();
+        if (system.equals(cached.system())) {
+            return cached.blocks();
+        }
+        var block = new JSONObject()
+                .put("type", "text")
+                .put("text", system)
+                .put("cache_control", breakpoint());
+        var blocks = new JSONArray().put(block).freeze();
+        SYSTEM_BLOCKS.set(new SystemBlocks(system, blocks));
+        return blocks;
+    }
+
+    static JSONArray tools(JSONArray tools) {
+        if (!ENABLED || tools == null || tools.isEmpty()) {
+            return tools;
+        }
+        return withLastMarked(tools, marked(tools.getJSONObject(tools.length() - 1)));
+    }
+
+    /**
+     * @return a copy of the message with a breakpoint on its last content block
+     */
+    static Message lastMessage(Message message) {
+        if (!ENABLED) {
+            return message;
+        }
+        var content = message.content();
+        JSONArray markedContent;
+        if (content instanceof JSONArray blocks && !blocks.isEmpty()) {
+            markedContent = withLastMarked(blocks, marked(block(blocks.opt(blocks.length() - 1))));
+        } else if (content instanceof String text && !text.isEmpty()) {
+            markedContent = new JSONArray().put(marked(new JSONObject()
+                    .put("type", "text")
+                    .put("text", text)));
+        } else {
+            return message;
+        }
+        return Message.withContentBlocks(message.role(), markedContent);
+    }
+
+    /**
+     * Only the marked block of a record, e.g. a tool_result, is converted into a JSONObject.
+     */
+    static JSONObject block(Object block) {
+        return block instanceof JSONString record
+                ? new JSONObject(record.toJSONString())
+                : (JSONObject) block;
+    }
+
+    static JSONObject marked(JSONObject block) {
+        var names = JSONObject.getNames(block);
+        var copy = names == null ? new JSONObject() : new JSONObject(block, names);
+        return copy.put("cache_control", breakpoint());
+    }
+
+    static JSONArray withLastMarked(JSONArray array, JSONObject last) {
+        var copy = new JSONArray(array.length());
+        for (int i = 0; i < array.length() - 1; i++) {
+            copy.put(array.get(i));
+        }
+        return copy.put(last);
+    }
+
+    /**
+     * Accumulates the cache related usage of a response.
+     */
+    static void record(JSONObject response) {
+        var usage = response.optJSONObject("usage");
+        if (usage == null) {
+            return;
+        }
+        var input = usage.optLong("input_tokens");
+        var read = usage.optLong("cache_read_input_tokens");
+        var creation = usage.optLong("cache_creation_input_tokens");
+        INPUT_TOKENS.add(input);
+        CACHE_READ_INPUT_TOKENS.add(read);
+        CACHE_CREATION_INPUT_TOKENS.add(creation);
+        Log.debug("input tokens: %d, cache read: %d, cache creation: %d".formatted(input, read, creation));
+    }
+
+    /**
+     * @return share of all input tokens served from the cache since startup
+     */
+    static double hitRate() {
+        var read = CACHE_READ_INPUT_TOKENS.sum();
+        var total = read + INPUT_TOKENS.sum() + CACHE_CREATION_INPUT_TOKENS.sum();
+        return total == 0 ? 0 : (double) read / total;
+    }
+}
@@ -0,0 +1,170 @@
+package airhacks.zsmith.claude.control;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.json.JSONObject;
+
+import airhacks.zcfg.ZCfg;
+import airhacks.zsmith.logging.control.Log;
+
+/**
+ * Process-wide admission control for Claude calls, shared by all agents using the same API key.
+ * Token buckets meter requests, input tokens and output tokens per minute. A limit of 0 disables the bucket.
+ *
+ * Token counts are estimated before the call (payload bytes times observed tokens per byte,
+ * average observed output tokens) and corrected afterwards with the response's usage block.
+ * Callers are admitted in arrival order through a fair lock, the head of the queue
+ * waits until all buckets can cover its reservation.
+ *
+ * <pre>
+ * claude.rate.requests.per.minute=50
+ * claude.rate.input.tokens.per.minute=40000
+ * claude.rate.output.tokens.per.minute=8000
+ * </pre>
+ */
+public class RateLimiter {
+
+    static final long REQUESTS_PER_MINUTE = ZCfg.integer("claude.rate.requests.per.minute", 0);
+    static final long INPUT_TOKENS_PER_MINUTE = ZCfg.integer("claude.rate.input.tokens.per.minute", 0);
+    static final long OUTPUT_TOKENS_PER_MINUTE = ZCfg.integer("claude.rate.output.tokens.per.minute", 0);
+
+    /** weight of the latest observation in the moving averages */
+    static final double SMOOTHING = 0.2;
+
+    static final Bucket REQUESTS = new Bucket(REQUESTS_PER_MINUTE);
+    static final Bucket INPUT_TOKENS = new Bucket(INPUT_TOKENS_PER_MINUTE);
+    static final Bucket OUTPUT_TOKENS = new Bucket(OUTPUT_TOKENS_PER_MINUTE);
+
+    static final ReentrantLock QUEUE = new ReentrantLock(true);
+    static final Executor WAITERS = Executors.newVirtualThreadPerTaskExecutor();
+
+    static double tokensPerByte = 0.25;
+    static double averageOutputTokens = 500;
+
+    public record Reservation(int payloadBytes, long inputTokens, long outputTokens) {}
+
+    static final class Bucket {
+        final double capacity;
+        final double refillPerNano;
+        double tokens;
+        long lastRefill;
+
+        Bucket(long perMinute) {
+            this.capacity = perMinute;
+            this.refillPerNano = perMinute / 60_000_000_000d;
+            this.tokens = perMinute;
+            this.lastRefill = System.nanoTime();
+        }
+
+        boolean unlimited() {
+            return this.capacity <= 0;
+        }
+
+        synchronized void refill() {
+            var now = System.nanoTime();
+            this.tokens = Math.min(this.capacity, this.tokens + (now - this.lastRefill) * this.refillPerNano);
+            this.lastRefill = now;
+        }
+
+        /**
+         * Reservations larger than the capacity are admitted on a full bucket, otherwise they would never pass.
+         * @return nanoseconds until the amount is available, 0 if available now
+         */
+        synchronized long nanosUntilAvailable(double amount) {
+            if (unlimited()) {
+                return 0;
+            }
+            refill();
+            var required = Math.min(amount, this.capacity);
+            if (this.tokens >= required) {
+                return 0;
+            }
+            return (long) Math.ceil((required - this.tokens) / this.refillPerNano);
+        }
+
+        synchronized void take(double amount) {
+            if (unlimited()) {
+                return;
+            }
+            refill();
+            this.tokens -= amount;
+        }
+    }
+
+    static boolean disabled() {
+        return REQUESTS.unlimited() && INPUT_TOKENS.unlimited() && OUTPUT_TOKENS.unlimited();
+    }
+
+    /**
+     * Blocks until the request can be sent without exceeding the configured limits.
+     */
+    public static Reservation acquire(int payloadBytes) {
+        var reservation = estimate(payloadBytes);
+        if (disabled()) {
+            return reservation;
+        }
+        QUEUE.lock();
+        try {
+            for (;;) {
+                var wait = Math.max(REQUESTS.nanosUntilAvailable(1),
+                        Math.max(INPUT_TOKENS.nanosUntilAvailable(reservation.inputTokens()),
+                                OUTPUT_TOKENS.nanosUntilAvailable(reservation.outputTokens())));
+                if (wait == 0) {
+                    REQUESTS.take(1);
+                    INPUT_TOKENS.take(reservation.inputTokens());
+                    OUTPUT_TOKENS.take(reservation.outputTokens());
+                    return reservation;
+                }
+                Log.debug("rate limit reached, waiting %d ms".formatted(wait / 1_000_000));
+                Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for rate limit", e);
+        } finally {
+            QUEUE.unlock();
+        }
+    }
+
+    /**
+     * Waits for admission on a virtual thread, without blocking the caller.
+     */
+    public static CompletableFuture<Reservation> acquireAsync(int payloadBytes) {
+        if (disabled()) {
+            return CompletableFuture.completedFuture(estimate(payloadBytes));
+        }
+        return CompletableFuture.supplyAsync(() -> acquire(payloadBytes), WAITERS);
+    }
+
+    static synchronized Reservation estimate(int payloadBytes) {
+        return new Reservation(payloadBytes, Math.round(payloadBytes * tokensPerByte), Math.round(averageOutputTokens));
+    }
+
+    /**
+     * Corrects the buckets by the difference between the reservation and the actual usage,
+     * and refines the estimates for subsequent calls.
+     */
+    public static void complete(Reservation reservation, JSONObject response) {
+        var usage = response.optJSONObject("usage");
+        if (usage == null) {
+            return;
+        }
+        var inputTokens = usage.optLong("input_tokens", reservation.inputTokens())
+                + usage.optLong("cache_creation_input_tokens")
+                + usage.optLong("cache_read_input_tokens");
+        var outputTokens = usage.optLong("output_tokens", reservation.outputTokens());
+        INPUT_TOKENS.take(inputTokens - reservation.inputTokens());
+        OUTPUT_TOKENS.take(outputTokens - reservation.outputTokens());
+        learn(reservation.payloadBytes(), inputTokens, outputTokens);
+    }
+
+    static synchronized void learn(int payloadBytes, long inputTokens, long outputTokens) {
+        if (payloadBytes > 0) {
+            tokensPerByte += SMOOTHING * ((double) inputTokens / payloadBytes - tokensPerByte);
+        }
+        averageOutputTokens += SMOOTHING * (outputTokens - averageOutputTokens);
+    }
+}
@@ -0,0 +1,209 @@
+package airhacks.zsmith.claude.control;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import airhacks.zcfg.ZCfg;
+import airhacks.zsmith.logging.control.Log;
+
+/**
+ * Retries overloaded (529), rate limited (429) and transient server errors
+ * with exponential backoff and jitter. A retry-after(-ms) header overrides the computed delay.
+ *
+ * Retries are paid from a process-wide budget: every retry withdraws one token,
+ * every call that succeeded without retrying deposits claude.retry.budget.ratio tokens.
+ * An empty budget disables retries until enough calls succeed again,
+ * so retries cannot amplify an overload.
+ *
+ * <pre>
+ * claude.retry.max.attempts=5
+ * claude.retry.initial.backoff.ms=500
+ * claude.retry.max.backoff.ms=30000
+ * claude.retry.budget=10
+ * claude.retry.budget.ratio=0.1
+ * </pre>
+ */
+public class Retry {
+
+    static final Set<Integer> RETRYABLE_STATUS = Set.of(408, 429, 500, 502, 503, 504, 529);
+
+    static final int MAX_ATTEMPTS = ZCfg.integer("claude.retry.max.attempts", 5);
+    static final long INITIAL_BACKOFF_MS = ZCfg.integer("claude.retry.initial.backoff.ms", 500);
+    static final long MAX_BACKOFF_MS = ZCfg.integer("claude.retry.max.backoff.ms", 30_000);
+    static final double BUDGET = ZCfg.integer("claude.retry.budget", 10);
+    static final double BUDGET_RATIO = Double.parseDouble(ZCfg.string("claude.retry.budget.ratio", "0.1"));
+
+    static final Map<Integer, LongAdder> ATTEMPTS = new ConcurrentHashMap<>();
+    static final LongAdder BUDGET_EXHAUSTED = new LongAdder();
+    static double budgetTokens = BUDGET;
+
+    public static <T> HttpResponse<T> send(HttpClient client, HttpRequest request, BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        for (int attempt = 1;; attempt++) {
+            HttpResponse<T> response;
+            try {
+                response = client.send(request, handler);
+            } catch (IOException e) {
+                if (!retry(attempt, e.getMessage())) {
+                    completed(attempt, false);
+                    throw e;
+                }
+                Thread.sleep(delay(attempt, null));
+                continue;
+            }
+            if (!isRetryable(response.statusCode()) || !retry(attempt, "HTTP " + response.statusCode())) {
+                completed(attempt, isSuccess(response));
+                return response;
+            }
+            discard(response);
+            Thread.sleep(delay(attempt, response));
+        }
+    }
+
+    public static <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpClient client, HttpRequest request, BodyHandler<T> handler) {
+        return sendAsync(client, request, handler, 1);
+    }
+
+    static <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpClient client, HttpRequest request, BodyHandler<T> handler, int attempt) {
+        return client.sendAsync(request, handler)
+                .handle((response, failure) -> {
+                    var cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                    if (cause != null) {
+                        if (!(cause instanceof IOException) || !retry(attempt, cause.getMessage())) {
+                            completed(attempt, false);
+                            return CompletableFuture.<HttpResponse<T>>failedFuture(cause);
+                        }
+                        return resendAsync(client, request, handler, attempt, delay(attempt, null));
+                    }
+                    if (!isRetryable(response.statusCode()) || !retry(attempt, "HTTP " + response.statusCode())) {
+                        completed(attempt, isSuccess(response));
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    discard(response);
+                    return resendAsync(client, request, handler, attempt, delay(attempt, response));
+                })
+                .thenCompose(next -> next);
+    }
+
+    static <T> CompletableFuture<HttpResponse<T>> resendAsync(HttpClient client, HttpRequest request, BodyHandler<T> handler, int attempt, long delayMs) {
+        var delayed = CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS);
+        return CompletableFuture.supplyAsync(() -> attempt + 1, delayed)
+                .thenCompose(next -> sendAsync(client, request, handler, next));
+    }
+
+    static boolean isRetryable(int statusCode) {
+        return RETRYABLE_STATUS.contains(statusCode);
+    }
+
+    static boolean isSuccess(HttpResponse<?> response) {
+        return response.statusCode() / 100 == 2;
+    }
+
+    static boolean retry(int attempt, String reason) {
+        if (attempt >= MAX_ATTEMPTS) {
+            Log.error("claude call failed after %d attempts: %s".formatted(attempt, reason));
+            return false;
+        }
+        if (!withdraw()) {
+            BUDGET_EXHAUSTED.increment();
+            Log.error("retry budget exhausted, not retrying: " + reason);
+            return false;
+        }
+        Log.error("claude call attempt %d failed, retrying: %s".formatted(attempt, reason));
+        return true;
+    }
+
+    static synchronized boolean withdraw() {
+        if (budgetTokens < 1) {
+            return false;
+        }
+        budgetTokens--;
+        return true;
+    }
+
+    static synchronized void deposit() {
+        budgetTokens = Math.min(BUDGET, budgetTokens + BUDGET_RATIO);
+    }
+
+    static void completed(int attempts, boolean success) {
+        ATTEMPTS.computeIfAbsent(attempts, a -> new LongAdder()).increment();
+        if (success && attempts == 1) {
+            deposit();
+        }
+    }
+
+    /**
+     * Exponential backoff with equal jitter, unless the server specified a retry-after.
+     * Both are capped at claude.retry.max.backoff.ms.
+     */
+    static long delay(int attempt, HttpResponse<?> response) {
+        if (response != null) {
+            var retryAfter = retryAfterMs(response);
+            if (retryAfter >= 0) {
+                return Math.min(MAX_BACKOFF_MS, retryAfter);
+            }
+        }
+        var backoff = Math.min(MAX_BACKOFF_MS, INITIAL_BACKOFF_MS << Math.min(attempt - 1, 20));
+        var half = backoff / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    static long retryAfterMs(HttpResponse<?> response) {
+        var headers = response.headers();
+        try {
+            var millis = headers.firstValue("retry-after-ms");
+            if (millis.isPresent()) {
+                return (long) Double.parseDouble(millis.get());
+            }
+            var seconds = headers.firstValue("retry-after");
+            if (seconds.isPresent()) {
+                return (long) (Double.parseDouble(seconds.get()) * 1000);
+            }
+        } catch (NumberFormatException e) {
+            // HTTP-date values fall back to the computed backoff
+        }
+        return -1;
+    }
+
+    static void discard(HttpResponse<?> response) {
+        if (response.body() instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                Log.error("cannot close discarded response: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return number of calls per number of attempts they took
+     */
+    public static Map<Integer, Long> attempts() {
+        var snapshot = new TreeMap<Integer, Long>();
+        ATTEMPTS.forEach((attempts, count) -> snapshot.put(attempts, count.sum()));
+        return snapshot;
+    }
+
+    /**
+     * @return number of retries denied because the budget was exhausted
+     */
+    public static long budgetExhausted() {
+        return BUDGET_EXHAUSTED.sum();
+    }
+
+    public static synchronized double budget() {
+        return budgetTokens;
+    }
+}
@@ -0,0 +1,144 @@
+package airhacks.zsmith.claude.control;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Reassembles the server-sent events of a streamed Messages API response
+ * into the same JSON structure a non-streaming request returns.
+ * Text deltas are forwarded to the listener as they arrive and joined on content_block_stop,
+ * tool_use input_json_delta fragments are joined and parsed on content_block_stop.
+ */
+public class StreamedMessage {
+
+    final Consumer<String> textListener;
+    final Map<Integer, StringBuilder> partialTexts = new HashMap<>();
+    final Map<Integer, StringBuilder> partialInputs = new HashMap<>();
+    final StringBuilder data = new StringBuilder();
+    JSONObject message = new JSONObject().put("content", new JSONArray());
+
+    public StreamedMessage(Consumer<String> textListener) {
+        this.textListener = textListener;
+    }
+
+    /**
+     * Consumes a single line of the SSE body. Only data fields are relevant,
+     * the event name is repeated as "type" within the data.
+     * Multiple data fields of an event are joined with a line feed,
+     * a single space after the colon is removed.
+     */
+    public void line(String line) {
+        if (line.isEmpty()) {
+            dispatch();
+        } else if (line.startsWith("data:")) {
+            if (!this.data.isEmpty()) {
+                this.data.append('\n');
+            }
+            var from = line.startsWith("data: ") ? "data: ".length() : "data:".length();
+            this.data.append(line, from, line.length());
+        }
+    }
+
+    void dispatch() {
+        if (this.data.isEmpty()) {
+            return;
+        }
+        var event = new JSONObject(this.data.toString(), Claude.RESPONSE_PARSING);
+        this.data.setLength(0);
+        event(event);
+    }
+
+    void event(JSONObject event) {
+        switch (event.getString("type")) {
+            case "message_start" -> this.message = event.getJSONObject("message");
+            case "content_block_start" -> blockStart(event.getInt("index"), event.getJSONObject("content_block"));
+            case "content_block_delta" -> blockDelta(event.getInt("index"), event.getJSONObject("delta"));
+            case "content_block_stop" -> blockStop(event.getInt("index"));
+            case "message_delta" -> messageDelta(event);
+            case "error" -> throw new IllegalStateException("claude stream error: " + event.getJSONObject("error"));
+            default -> {
+                // ping, message_stop
+            }
+        }
+    }
+
+    void blockStart(int index, JSONObject block) {
+        switch (block.optString("type")) {
+            case "text" -> this.partialTexts.put(index, new StringBuilder(block.optString("text")));
+            case "tool_use" -> this.partialInputs.put(index, new StringBuilder());
+            default -> {
+            }
+        }
+        content().put(index, block);
+    }
+
+    void blockDelta(int index, JSONObject delta) {
+        var block = content().getJSONObject(index);
+        switch (delta.getString("type")) {
+            case "text_delta" -> {
+                var text = delta.getString("text");
+                this.partialTexts
+                        .computeIfAbsent(index, i -> new StringBuilder(block.optString("text")))
+                        .append(text);
+                if (this.textListener != null) {
+                    this.textListener.accept(text);
+                }
+            }
+            case "input_json_delta" -> this.partialInputs
+                    .computeIfAbsent(index, i -> new StringBuilder())
+                    .append(delta.getString("partial_json"));
+            default -> {
+                // thinking and signature deltas are not used by the agent loop
+            }
+        }
+    }
+
+    void blockStop(int index) {
+        var partialText = this.partialTexts.remove(index);
+        if (partialText != null) {
+            content().getJSONObject(index).put("text", partialText.toString());
+        }
+        var partialInput = this.partialInputs.remove(index);
+        if (partialInput == null) {
+            return;
+        }
+        var input = partialInput.isEmpty() ? new JSONObject() : new JSONObject(partialInput.toString());
+        content().getJSONObject(index).put("input", input);
+    }
+
+    void messageDelta(JSONObject event) {
+        var delta = event.optJSONObject("delta");
+        if (delta != null && delta.has("stop_reason")) {
+            this.message.put("stop_reason", delta.get("stop_reason"));
+        }
+        var usage = event.optJSONObject("usage");
+        if (usage == null) {
+            return;
+        }
+        var accumulated = this.message.optJSONObject("usage");
+        if (accumulated == null) {
+            this.message.put("usage", usage);
+            return;
+        }
+        usage.keySet().forEach(key -> accumulated.put(key, usage.get(key)));
+    }
+
+    JSONArray content() {
+        return this.message.getJSONArray("content");
+    }
+
+    /**
+     * @return the reassembled message, including content, stop_reason and usage
+     */
+    public JSONObject message() {
+        dispatch();
+        // a truncated stream ends without content_block_stop
+        this.partialTexts.forEach((index, text) -> content().getJSONObject(index).put("text", text.toString()));
+        this.partialTexts.clear();
+        return this.message;
+    }
+}
@@ -0,0 +1,67 @@
+package airhacks.zsmith.claude.control;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONString;
+
+import airhacks.zsmith.tools.control.InputSchema;
+import airhacks.zsmith.tools.control.Tool;
+
+/**
+ * The tool definitions of an agent, frozen when the tools change.
+ * Their cached UTF-8 bytes are written verbatim into each request payload.
+ * The input schemas are compiled along with the definitions.
+ */
+public class ToolCatalog implements JSONString {
+
+    record Snapshot(List<Tool> tools, JSONArray definitions, Map<String, InputSchema> schemas) {}
+
+    static final Snapshot EMPTY = new Snapshot(List.of(), new JSONArray().freeze(), Map.of());
+
+    volatile Snapshot snapshot = EMPTY;
+
+    /**
+     * Parses and compiles the tools' input schemas and serializes the definitions, including the prompt cache breakpoint.
+     */
+    public void rebuild(Collection<Tool> tools) {
+        var definitions = new JSONArray();
+        var schemas = new HashMap<String, InputSchema>();
+        for (var tool : tools) {
+            var definition = tool.toToolDefinition();
+            definitions.put(definition);
+            schemas.put(tool.name(), InputSchema.compile(definition.opt("input_schema")));
+        }
+        this.snapshot = new Snapshot(List.copyOf(tools), PromptCache.tools(definitions).freeze(), Map.copyOf(schemas));
+    }
+
+    public boolean isEmpty() {
+        return this.snapshot.tools().isEmpty();
+    }
+
+    public List<Tool> tools() {
+        return this.snapshot.tools();
+    }
+
+    /**
+     * @return the compiled input schema of the tool, {@link InputSchema#ANY} for unknown tools
+     */
+    public InputSchema schema(String toolName) {
+        return this.snapshot.schemas().getOrDefault(toolName, InputSchema.ANY);
+    }
+
+    /**
+     * @return the frozen tool definitions, including the prompt cache breakpoint
+     */
+    public JSONArray definitions() {
+        return this.snapshot.definitions();
+    }
+
+    @Override
+    public String toJSONString() {
+        return this.snapshot.definitions().toString();
+    }
+}
@@ -1,6 +1,7 @@
 package airhacks.zsmith.logging.control;
 
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 
 
 
@@ -14,6 +15,7 @@ public enum Log {
     DEBUG(Color.BLACK_ON_WHITE, System.out);
 
     PrintStream out;
+    private final Color color;
 
     enum Color {
         PROMPT("\033[0;90m"),
@@ -41,6 +43,7 @@ public enum Log {
 
     private Log(Color color, PrintStream out) {
         this.value = (color.code + "%s" + RESET);
+        this.color = color;
         this.out = out;
     }
 
@@ -53,11 +56,24 @@ public enum Log {
         this.out.println(colored);
     }
 
+    /**
+     * Prints UTF-8 encoded bytes without decoding them into a String.
+     */
+    public void out(ByteBuffer utf8) {
+        this.out.print(this.color.code);
+        this.out.write(utf8.array(), utf8.arrayOffset() + utf8.position(), utf8.remaining());
+        this.out.println(RESET);
+    }
+
 
     public static void debug(String message) {
             Log.DEBUG.out(message);
     }
 
+    public static void debug(ByteBuffer utf8) {
+            Log.DEBUG.out(utf8);
+    }
+
     public static void error(String message) {
         Log.ERROR.out(message);
     }
@@ -0,0 +1,140 @@
+package airhacks.zsmith.stub.boundary;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.json.JSONObject;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import airhacks.zcfg.ZCfg;
+import airhacks.zsmith.logging.control.Log;
+import airhacks.zsmith.stub.control.Latency;
+import airhacks.zsmith.stub.control.Script;
+import airhacks.zsmith.stub.control.ServerSentEvents;
+
+/**
+ * Local stand-in for the Messages API, for offline load tests of the agent loop.
+ * Point zsmith at it with claude.uri=http://localhost:8089/v1/messages
+ *
+ * <pre>
+ * stub.port=8089
+ * stub.script=responses.jsonl
+ * stub.latency=lognormal:200,0.5
+ * stub.rate.limited.ratio=0.01
+ * stub.overloaded.ratio=0.01
+ * </pre>
+ */
+public record ClaudeStub(HttpServer server, Script script, Latency latency, double rateLimitedRatio, double overloadedRatio, LongAdder requests) {
+
+    static final String PATH = "/v1/messages";
+
+    public static ClaudeStub start(int port, Script script, Latency latency, double rateLimitedRatio, double overloadedRatio) {
+        // without TCP_NODELAY, delayed ACKs add ~40ms to each exchange
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        HttpServer server;
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start claude stub on port " + port, e);
+        }
+        var stub = new ClaudeStub(server, script, latency, rateLimitedRatio, overloadedRatio, new LongAdder());
+        server.createContext(PATH, stub::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        return stub;
+    }
+
+    /**
+     * Starts a stub without latency and errors on an ephemeral port.
+     */
+    public static ClaudeStub start() {
+        return start(0, Script.generated(), Latency.none(), 0, 0);
+    }
+
+    public URI uri() {
+        return URI.create("http://localhost:%d%s".formatted(this.server.getAddress().getPort(), PATH));
+    }
+
+    public long requestCount() {
+        return this.requests.sum();
+    }
+
+    public void stop() {
+        this.server.stop(0);
+    }
+
+    void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            this.requests.increment();
+            var request = new JSONObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            sleep(this.latency.nextMillis());
+            var random = ThreadLocalRandom.current().nextDouble();
+            if (random < this.rateLimitedRatio) {
+                error(exchange, 429, "rate_limit_error");
+                return;
+            }
+            if (random < this.rateLimitedRatio + this.overloadedRatio) {
+                error(exchange, 529, "overloaded_error");
+                return;
+            }
+            var response = this.script.respond(request);
+            if (request.optBoolean("stream")) {
+                send(exchange, 200, "text/event-stream", ServerSentEvents.encode(response));
+            } else {
+                send(exchange, 200, "application/json", response.toString());
+            }
+        }
+    }
+
+    static void error(HttpExchange exchange, int status, String type) throws IOException {
+        var body = new JSONObject()
+                .put("type", "error")
+                .put("error", new JSONObject()
+                        .put("type", type)
+                        .put("message", "injected by claude stub"));
+        exchange.getResponseHeaders().add("retry-after", "1");
+        send(exchange, status, "application/json", body.toString());
+    }
+
+    static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("content-type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String... args) {
+        ZCfg.load("zsmith");
+        var scriptFile = ZCfg.string("stub.script");
+        var script = scriptFile != null ? Script.load(Path.of(scriptFile)) : Script.generated();
+        var stub = start(
+                ZCfg.integer("stub.port", 8089),
+                script,
+                Latency.parse(ZCfg.string("stub.latency", "none")),
+                Double.parseDouble(ZCfg.string("stub.rate.limited.ratio", "0")),
+                Double.parseDouble(ZCfg.string("stub.overloaded.ratio", "0")));
+        Log.user("claude stub listening on " + stub.uri());
+    }
+}
@@ -0,0 +1,56 @@
+package airhacks.zsmith.stub.control;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Simulated response latency in milliseconds.
+ */
+public interface Latency {
+
+    long nextMillis();
+
+    static Latency none() {
+        return () -> 0;
+    }
+
+    static Latency fixed(long millis) {
+        return () -> millis;
+    }
+
+    static Latency uniform(long minMillis, long maxMillis) {
+        return () -> ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1);
+    }
+
+    /**
+     * Long-tailed, like real generation times: median medianMillis, spread sigma (e.g. 0.5).
+     */
+    static Latency logNormal(long medianMillis, double sigma) {
+        return () -> Math.round(medianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    /**
+     * Parses "none", "fixed:50", "uniform:20-200" or "lognormal:100,0.5".
+     */
+    static Latency parse(String spec) {
+        if (spec == null || spec.isBlank() || "none".equals(spec)) {
+            return none();
+        }
+        var parts = spec.split(":", 2);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid latency: " + spec);
+        }
+        var arguments = parts[1];
+        return switch (parts[0].trim()) {
+            case "fixed" -> fixed(Long.parseLong(arguments.trim()));
+            case "uniform" -> {
+                var range = arguments.split("-");
+                yield uniform(Long.parseLong(range[0].trim()), Long.parseLong(range[1].trim()));
+            }
+            case "lognormal" -> {
+                var values = arguments.split(",");
+                yield logNormal(Long.parseLong(values[0].trim()), Double.parseDouble(values[1].trim()));
+            }
+            default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+        };
+    }
+}
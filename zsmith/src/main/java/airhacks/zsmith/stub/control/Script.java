@@ -0,0 +1,81 @@
+package airhacks.zsmith.stub.control;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Produces the stub's responses. Scripted responses are served round-robin,
+ * without a script the stub answers the first tool request with a tool_use of the first tool
+ * and everything else, including tool results, with an end_turn text.
+ */
+public record Script(List<JSONObject> responses, AtomicLong next) {
+
+    public Script(List<JSONObject> responses) {
+        this(List.copyOf(responses), new AtomicLong());
+    }
+
+    public static Script generated() {
+        return new Script(List.of());
+    }
+
+    /**
+     * One Messages API response per line.
+     */
+    public static Script load(Path jsonLines) {
+        try (var lines = Files.lines(jsonLines)) {
+            return new Script(lines
+                    .filter(line -> !line.isBlank())
+                    .map(JSONObject::new)
+                    .toList());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load stub script: " + jsonLines, e);
+        }
+    }
+
+    public JSONObject respond(JSONObject request) {
+        if (!this.responses.isEmpty()) {
+            var index = (int) (this.next.getAndIncrement() % this.responses.size());
+            return this.responses.get(index);
+        }
+        var tools = request.optJSONArray("tools");
+        if (tools != null && !tools.isEmpty() && !answersToolUse(request)) {
+            var tool = tools.getJSONObject(0);
+            return message(new JSONObject()
+                    .put("type", "tool_use")
+                    .put("id", "toolu_" + UUID.randomUUID())
+                    .put("name", tool.getString("name"))
+                    .put("input", new JSONObject()), "tool_use");
+        }
+        return message(new JSONObject()
+                .put("type", "text")
+                .put("text", "stub response"), "end_turn");
+    }
+
+    static boolean answersToolUse(JSONObject request) {
+        var messages = request.getJSONArray("messages");
+        var last = messages.getJSONObject(messages.length() - 1);
+        return last.opt("content") instanceof JSONArray blocks
+                && !blocks.isEmpty()
+                && "tool_result".equals(blocks.getJSONObject(0).optString("type"));
+    }
+
+    static JSONObject message(JSONObject contentBlock, String stopReason) {
+        return new JSONObject()
+                .put("id", "msg_" + UUID.randomUUID())
+                .put("type", "message")
+                .put("role", "assistant")
+                .put("model", "claude-stub")
+                .put("content", new JSONArray().put(contentBlock))
+                .put("stop_reason", stopReason)
+                .put("usage", new JSONObject()
+                        .put("input_tokens", 10)
+                        .put("output_tokens", 10));
+    }
+}
@@ -0,0 +1,66 @@
+package airhacks.zsmith.stub.control;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Encodes a complete Messages API response as the event sequence of a streamed response.
+ */
+public interface ServerSentEvents {
+
+    static String encode(JSONObject message) {
+        var events = new StringBuilder();
+        var content = message.getJSONArray("content");
+        var start = new JSONObject(message, JSONObject.getNames(message))
+                .put("content", new JSONArray())
+                .put("stop_reason", JSONObject.NULL);
+        event(events, new JSONObject()
+                .put("type", "message_start")
+                .put("message", start));
+        for (int index = 0; index < content.length(); index++) {
+            block(events, index, content.getJSONObject(index));
+        }
+        event(events, new JSONObject()
+                .put("type", "message_delta")
+                .put("delta", new JSONObject().put("stop_reason", message.opt("stop_reason")))
+                .put("usage", new JSONObject().put("output_tokens", message.getJSONObject("usage").optInt("output_tokens"))));
+        event(events, new JSONObject().put("type", "message_stop"));
+        return events.toString();
+    }
+
+    static void block(StringBuilder events, int index, JSONObject block) {
+        var type = block.getString("type");
+        var emptyBlock = new JSONObject(block, JSONObject.getNames(block));
+        JSONObject delta;
+        if ("tool_use".equals(type)) {
+            emptyBlock.put("input", new JSONObject());
+            delta = new JSONObject()
+                    .put("type", "input_json_delta")
+                    .put("partial_json", block.getJSONObject("input").toString());
+        } else {
+            emptyBlock.put("text", "");
+            delta = new JSONObject()
+                    .put("type", "text_delta")
+                    .put("text", block.optString("text"));
+        }
+        event(events, new JSONObject()
+                .put("type", "content_block_start")
+                .put("index", index)
+                .put("content_block", emptyBlock));
+        event(events, new JSONObject()
+                .put("type", "content_block_delta")
+                .put("index", index)
+                .put("delta", delta));
+        event(events, new JSONObject()
+                .put("type", "content_block_stop")
+                .put("index", index));
+    }
+
+    static void event(StringBuilder events, JSONObject data) {
+        events.append("event: ")
+                .append(data.getString("type"))
+                .append("\ndata: ")
+                .append(data)
+                .append("\n\n");
+    }
+}
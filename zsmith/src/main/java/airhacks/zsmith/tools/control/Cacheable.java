@@ -0,0 +1,24 @@
+package airhacks.zsmith.tools.control;
+
+import java.time.Duration;
+
+import airhacks.zcfg.ZCfg;
+
+/**
+ * Marks a deterministic tool: the result depends only on the input and calling it has no side effects.
+ * Successful results of cacheable tools are memoized by {@link ToolResultCache},
+ * identical inputs are answered from the cache until the entry expires.
+ *
+ * The time to live is configurable per tool, 0 disables caching:
+ * <pre>
+ * tool.calculator.cache.ttl.ms=300000
+ * </pre>
+ */
+public interface Cacheable extends Tool {
+
+    int DEFAULT_TTL_MS = 300_000;
+
+    default Duration cacheTtl() {
+        return Duration.ofMillis(ZCfg.integer("tool." + name() + ".cache.ttl.ms", DEFAULT_TTL_MS));
+    }
+}
@@ -2,7 +2,7 @@ package airhacks.zsmith.tools.control;
 
 import org.json.JSONObject;
 
-public class CalculatorTool implements Tool {
+public class CalculatorTool implements Cacheable {
 
     @Override
     public String name() {
@@ -0,0 +1,417 @@
+package airhacks.zsmith.tools.control;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * A tool's input schema compiled once into nested checks, so each tool use is
+ * validated without interpreting the schema document again.
+ *
+ * Supports the JSON Schema (draft 2020-12) validation keywords tools use:
+ * type, enum, const, properties, required, additionalProperties, items,
+ * prefixItems, minItems, maxItems, uniqueItems, minLength, maxLength, pattern,
+ * minimum, maximum, exclusiveMinimum, exclusiveMaximum, multipleOf, allOf,
+ * anyOf, oneOf and not. Annotations and other keywords (e.g. $ref, format) are ignored.
+ */
+@FunctionalInterface
+public interface InputSchema {
+
+    InputSchema ANY = (value, path, violations) -> {};
+
+    /**
+     * Adds a violation for each failed check of the value.
+     *
+     * @param path JSON pointer of the value, empty for the input itself
+     */
+    void check(Object value, String path, List<String> violations);
+
+    /**
+     * @return one message per violation with the JSON pointer of the offending value, empty if the input is valid
+     */
+    default List<String> validate(JSONObject input) {
+        var violations = new ArrayList<String>(0);
+        this.check(input, "", violations);
+        return violations;
+    }
+
+    static InputSchema compile(String schema) {
+        return compile(new JSONObject(schema));
+    }
+
+    /**
+     * @param schema a JSONObject, a boolean schema or null (accepts everything)
+     * @throws IllegalArgumentException if the schema is neither an object nor a boolean, or a pattern is invalid
+     */
+    static InputSchema compile(Object schema) {
+        if (schema == null || Boolean.TRUE.equals(schema)) {
+            return ANY;
+        }
+        if (Boolean.FALSE.equals(schema)) {
+            return (value, path, violations) -> violations.add(at(path) + "no value allowed");
+        }
+        if (!(schema instanceof JSONObject object)) {
+            throw new IllegalArgumentException("schema must be an object or a boolean, was: " + schema);
+        }
+        var checks = new ArrayList<InputSchema>();
+        type(object, checks);
+        values(object, checks);
+        objects(object, checks);
+        arrays(object, checks);
+        strings(object, checks);
+        numbers(object, checks);
+        combinations(object, checks);
+        return all(checks);
+    }
+
+    static InputSchema all(List<InputSchema> checks) {
+        return switch (checks.size()) {
+            case 0 -> ANY;
+            case 1 -> checks.getFirst();
+            default -> {
+                var array = checks.toArray(InputSchema[]::new);
+                yield (value, path, violations) -> {
+                    for (var check : array) {
+                        check.check(value, path, violations);
+                    }
+                };
+            }
+        };
+    }
+
+    static void type(JSONObject schema, List<InputSchema> checks) {
+        var type = schema.opt("type");
+        if (type == null) {
+            return;
+        }
+        var names = type instanceof JSONArray array
+                ? array.toList().stream().map(String::valueOf).toList()
+                : List.of(type.toString());
+        var predicate = names.stream()
+                .map(InputSchema::typePredicate)
+                .reduce(Predicate::or)
+                .orElse(value -> true);
+        var expected = String.join(" or ", names);
+        checks.add((value, path, violations) -> {
+            if (!predicate.test(value)) {
+                violations.add(at(path) + "expected " + expected + ", was " + typeName(value));
+            }
+        });
+    }
+
+    static Predicate<Object> typePredicate(String type) {
+        return switch (type) {
+            case "object" -> JSONObject.class::isInstance;
+            case "array" -> JSONArray.class::isInstance;
+            case "string" -> String.class::isInstance;
+            case "boolean" -> Boolean.class::isInstance;
+            case "null" -> JSONObject.NULL::equals;
+            case "number" -> Number.class::isInstance;
+            case "integer" -> InputSchema::isInteger;
+            default -> throw new IllegalArgumentException("unknown type: " + type);
+        };
+    }
+
+    static void values(JSONObject schema, List<InputSchema> checks) {
+        if (schema.has("const")) {
+            var constant = schema.opt("const");
+            checks.add((value, path, violations) -> {
+                if (!equal(constant, value)) {
+                    violations.add(at(path) + "expected " + constant);
+                }
+            });
+        }
+        var values = schema.optJSONArray("enum");
+        if (values != null) {
+            var allowed = listOf(values);
+            checks.add((value, path, violations) -> {
+                if (allowed.stream().noneMatch(candidate -> equal(candidate, value))) {
+                    violations.add(at(path) + "expected one of " + values + ", was " + JSONObject.valueToString(value));
+                }
+            });
+        }
+    }
+
+    static void objects(JSONObject schema, List<InputSchema> checks) {
+        var properties = new LinkedHashMap<String, InputSchema>();
+        var declared = schema.optJSONObject("properties");
+        if (declared != null) {
+            for (var name : declared.keySet()) {
+                properties.put(name, compile(declared.opt(name)));
+            }
+        }
+        var required = schema.optJSONArray("required");
+        var requiredNames = required == null ? List.<String>of() : required.toList().stream().map(String::valueOf).toList();
+        var additional = schema.opt("additionalProperties");
+        if (properties.isEmpty() && requiredNames.isEmpty() && additional == null) {
+            return;
+        }
+        InputSchema additionalCheck = Boolean.FALSE.equals(additional)
+                ? (value, path, violations) -> violations.add(at(path) + "unexpected property")
+                : additional == null ? null : compile(additional);
+        checks.add((value, path, violations) -> {
+            if (!(value instanceof JSONObject object)) {
+                return;
+            }
+            for (var name : requiredNames) {
+                if (!object.has(name)) {
+                    violations.add(at(path) + "missing required property \"" + name + "\"");
+                }
+            }
+            checkProperties(object, properties, additionalCheck, path, violations);
+        });
+    }
+
+    static void checkProperties(JSONObject object, Map<String, InputSchema> properties, InputSchema additional, String path, List<String> violations) {
+        if (additional == null) {
+            for (var property : properties.entrySet()) {
+                var name = property.getKey();
+                if (object.has(name)) {
+                    property.getValue().check(object.opt(name), pointer(path, name), violations);
+                }
+            }
+            return;
+        }
+        for (var name : object.keySet()) {
+            var check = properties.getOrDefault(name, additional);
+            check.check(object.opt(name), pointer(path, name), violations);
+        }
+    }
+
+    static void arrays(JSONObject schema, List<InputSchema> checks) {
+        var prefixItems = schema.optJSONArray("prefixItems");
+        var prefix = new ArrayList<InputSchema>();
+        if (prefixItems != null) {
+            for (int i = 0; i < prefixItems.length(); i++) {
+                prefix.add(compile(prefixItems.opt(i)));
+            }
+        }
+        var items = schema.has("items") ? compile(schema.opt("items")) : null;
+        var minItems = schema.optInt("minItems", 0);
+        var maxItems = schema.optInt("maxItems", Integer.MAX_VALUE);
+        var uniqueItems = schema.optBoolean("uniqueItems", false);
+        if (prefix.isEmpty() && items == null && minItems == 0 && maxItems == Integer.MAX_VALUE && !uniqueItems) {
+            return;
+        }
+        checks.add((value, path, violations) -> {
+            if (!(value instanceof JSONArray array)) {
+                return;
+            }
+            var length = array.length();
+            if (length < minItems) {
+                violations.add(at(path) + "expected at least " + minItems + " items, was " + length);
+            }
+            if (length > maxItems) {
+                violations.add(at(path) + "expected at most " + maxItems + " items, was " + length);
+            }
+            for (int i = 0; i < length; i++) {
+                var check = i < prefix.size() ? prefix.get(i) : items;
+                if (check != null) {
+                    check.check(array.opt(i), path + "/" + i, violations);
+                }
+            }
+            if (uniqueItems && !unique(array)) {
+                violations.add(at(path) + "expected unique items");
+            }
+        });
+    }
+
+    static void strings(JSONObject schema, List<InputSchema> checks) {
+        var minLength = schema.optInt("minLength", 0);
+        var maxLength = schema.optInt("maxLength", Integer.MAX_VALUE);
+        var regex = schema.optString("pattern", null);
+        if (minLength == 0 && maxLength == Integer.MAX_VALUE && regex == null) {
+            return;
+        }
+        var pattern = regex == null ? null : Pattern.compile(regex);
+        checks.add((value, path, violations) -> {
+            if (!(value instanceof String string)) {
+                return;
+            }
+            var length = string.codePointCount(0, string.length());
+            if (length < minLength) {
+                violations.add(at(path) + "expected at least " + minLength + " characters, was " + length);
+            }
+            if (length > maxLength) {
+                violations.add(at(path) + "expected at most " + maxLength + " characters, was " + length);
+            }
+            if (pattern != null && !pattern.matcher(string).find()) {
+                violations.add(at(path) + "expected to match " + regex);
+            }
+        });
+    }
+
+    static void numbers(JSONObject schema, List<InputSchema> checks) {
+        var minimum = bound(schema, "minimum");
+        var maximum = bound(schema, "maximum");
+        var exclusiveMinimum = bound(schema, "exclusiveMinimum");
+        var exclusiveMaximum = bound(schema, "exclusiveMaximum");
+        var multipleOf = schema.optBigDecimal("multipleOf", null);
+        if (minimum == null && maximum == null && exclusiveMinimum == null && exclusiveMaximum == null
+                && multipleOf == null) {
+            return;
+        }
+        checks.add((value, path, violations) -> {
+            if (!(value instanceof Number number)) {
+                return;
+            }
+            var n = decimal(number);
+            if (minimum != null && n.compareTo(minimum) < 0) {
+                violations.add(at(path) + "expected at least " + number(minimum) + ", was " + number);
+            }
+            if (maximum != null && n.compareTo(maximum) > 0) {
+                violations.add(at(path) + "expected at most " + number(maximum) + ", was " + number);
+            }
+            if (exclusiveMinimum != null && n.compareTo(exclusiveMinimum) <= 0) {
+                violations.add(at(path) + "expected more than " + number(exclusiveMinimum) + ", was " + number);
+            }
+            if (exclusiveMaximum != null && n.compareTo(exclusiveMaximum) >= 0) {
+                violations.add(at(path) + "expected less than " + number(exclusiveMaximum) + ", was " + number);
+            }
+            if (multipleOf != null && n.remainder(multipleOf).signum() != 0) {
+                violations.add(at(path) + "expected a multiple of " + multipleOf + ", was " + number);
+            }
+        });
+    }
+
+    static void combinations(JSONObject schema, List<InputSchema> checks) {
+        var allOf = schemas(schema, "allOf");
+        if (!allOf.isEmpty()) {
+            checks.add(all(allOf));
+        }
+        var anyOf = schemas(schema, "anyOf");
+        if (!anyOf.isEmpty()) {
+            checks.add((value, path, violations) -> {
+                if (anyOf.stream().noneMatch(candidate -> matches(candidate, value, path))) {
+                    violations.add(at(path) + "expected to match any of " + anyOf.size() + " schemas");
+                }
+            });
+        }
+        var oneOf = schemas(schema, "oneOf");
+        if (!oneOf.isEmpty()) {
+            checks.add((value, path, violations) -> {
+                var matching = oneOf.stream().filter(candidate -> matches(candidate, value, path)).count();
+                if (matching != 1) {
+                    violations.add(at(path) + "expected to match exactly one of " + oneOf.size() + " schemas, matched " + matching);
+                }
+            });
+        }
+        if (schema.has("not")) {
+            var not = compile(schema.opt("not"));
+            checks.add((value, path, violations) -> {
+                if (matches(not, value, path)) {
+                    violations.add(at(path) + "expected not to match schema");
+                }
+            });
+        }
+    }
+
+    static List<InputSchema> schemas(JSONObject schema, String keyword) {
+        var array = schema.optJSONArray(keyword);
+        if (array == null) {
+            return List.of();
+        }
+        var schemas = new ArrayList<InputSchema>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            schemas.add(compile(array.opt(i)));
+        }
+        return List.copyOf(schemas);
+    }
+
+    static boolean matches(InputSchema schema, Object value, String path) {
+        var violations = new ArrayList<String>(0);
+        schema.check(value, path, violations);
+        return violations.isEmpty();
+    }
+
+    /**
+     * @return the keyword's value, compared exactly like multipleOf, or null if absent
+     */
+    static BigDecimal bound(JSONObject schema, String keyword) {
+        return schema.opt(keyword) instanceof Number number ? decimal(number) : null;
+    }
+
+    static boolean isInteger(Object value) {
+        return switch (value) {
+            case Integer i -> true;
+            case Long l -> true;
+            case BigInteger b -> true;
+            case Short s -> true;
+            case Byte b -> true;
+            case BigDecimal d -> d.signum() == 0 || d.stripTrailingZeros().scale() <= 0;
+            case Number n -> Double.isFinite(n.doubleValue()) && n.doubleValue() == Math.rint(n.doubleValue());
+            default -> false;
+        };
+    }
+
+    /**
+     * JSON equality: numbers by value, objects and arrays by content.
+     */
+    static boolean equal(Object expected, Object actual) {
+        if (expected instanceof Number a && actual instanceof Number b) {
+            return decimal(a).compareTo(decimal(b)) == 0;
+        }
+        if (expected instanceof JSONObject a && actual instanceof JSONObject b) {
+            return a.similar(b);
+        }
+        if (expected instanceof JSONArray a && actual instanceof JSONArray b) {
+            return a.similar(b);
+        }
+        return expected.equals(actual);
+    }
+
+    static boolean unique(JSONArray array) {
+        for (int i = 0; i < array.length(); i++) {
+            for (int j = i + 1; j < array.length(); j++) {
+                if (equal(array.opt(i), array.opt(j))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    static List<Object> listOf(JSONArray array) {
+        var values = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            values.add(array.opt(i));
+        }
+        return values;
+    }
+
+    static BigDecimal decimal(Number number) {
+        return number instanceof BigDecimal decimal ? decimal : new BigDecimal(number.toString());
+    }
+
+    static String number(BigDecimal value) {
+        return value.signum() == 0 ? "0" : value.stripTrailingZeros().toPlainString();
+    }
+
+    static String typeName(Object value) {
+        return switch (value) {
+            case null -> "null";
+            case JSONObject o -> "object";
+            case JSONArray a -> "array";
+            case String s -> "string";
+            case Boolean b -> "boolean";
+            case Number n -> isInteger(n) ? "integer" : "number";
+            default -> JSONObject.NULL.equals(value) ? "null" : value.getClass().getSimpleName();
+        };
+    }
+
+    static String pointer(String path, String name) {
+        return path + "/" + name.replace("~", "~0").replace("/", "~1");
+    }
+
+    static String at(String path) {
+        return (path.isEmpty() ? "input" : path) + ": ";
+    }
+}
@@ -0,0 +1,128 @@
+package airhacks.zsmith.tools.control;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import airhacks.zcfg.ZCfg;
+import airhacks.zsmith.logging.control.Log;
+import airhacks.zsmith.tools.entity.ToolResult;
+import airhacks.zsmith.tools.entity.ToolUse;
+
+/**
+ * Executes tool calls with a deadline and behind a per-agent and per-tool bulkhead.
+ * Each call runs on its own virtual thread. When the timeout expires, the caller stops waiting,
+ * the call is interrupted and reported to Claude as an error, also if the tool ignores the interrupt.
+ * The bulkhead limits the concurrent calls of a tool across all agents with the same name,
+ * a permit is only returned when the call actually ends. Calls exceeding the limit fail fast,
+ * so a hung backend fails further calls of its tool instead of accumulating threads.
+ * 0 disables a timeout or bulkhead.
+ *
+ * Configured globally or in the agent's app.properties, tool specific keys take precedence:
+ * <pre>
+ * tool.timeout.ms=60000
+ * tool.concurrency=32
+ * tool.calculator.timeout.ms=1000
+ * tool.calculator.concurrency=4
+ * </pre>
+ */
+public record ToolGuard(String toolName, Duration timeout, Semaphore bulkhead) {
+
+    static final int DEFAULT_TIMEOUT_MS = 60_000;
+    static final int DEFAULT_CONCURRENCY = 32;
+
+    record Bulkhead(int concurrency, Semaphore permits) {
+    }
+
+    /** bulkheads are shared by the agents with the same name, the first configuration wins */
+    static final Map<String, Bulkhead> BULKHEADS = new ConcurrentHashMap<>();
+    static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ToolGuard {
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("timeout of tool %s must not be negative, was: %s".formatted(toolName, timeout));
+        }
+    }
+
+    /**
+     * Reads the tool's configuration, call after the agent's configuration was loaded.
+     */
+    public static ToolGuard of(String agentName, String toolName) {
+        var timeoutMs = ZCfg.integer("tool." + toolName + ".timeout.ms", ZCfg.integer("tool.timeout.ms", DEFAULT_TIMEOUT_MS));
+        var concurrency = ZCfg.integer("tool." + toolName + ".concurrency", ZCfg.integer("tool.concurrency", DEFAULT_CONCURRENCY));
+        if (timeoutMs < 0) {
+            throw new IllegalArgumentException("tool.%s.timeout.ms must not be negative, was: %d".formatted(toolName, timeoutMs));
+        }
+        if (concurrency < 0) {
+            throw new IllegalArgumentException("tool.%s.concurrency must not be negative, was: %d".formatted(toolName, concurrency));
+        }
+        var bulkhead = concurrency > 0
+                ? bulkhead(agentName + "." + toolName, concurrency)
+                : null;
+        return new ToolGuard(toolName, Duration.ofMillis(timeoutMs), bulkhead);
+    }
+
+    static Semaphore bulkhead(String key, int concurrency) {
+        var bulkhead = BULKHEADS.computeIfAbsent(key, k -> new Bulkhead(concurrency, new Semaphore(concurrency)));
+        if (bulkhead.concurrency() != concurrency) {
+            Log.error("bulkhead %s already exists with concurrency %d, ignoring %d".formatted(key, bulkhead.concurrency(), concurrency));
+        }
+        return bulkhead.permits();
+    }
+
+    /**
+     * Fails without waiting when the bulkhead is exhausted.
+     * Interrupting the caller cancels the call.
+     */
+    public ToolResult execute(Tool tool, ToolUse toolUse) {
+        if (this.bulkhead != null && !this.bulkhead.tryAcquire()) {
+            Log.error("tool %s is busy".formatted(this.toolName));
+            return ToolResult.error(toolUse.id(), "Tool %s is busy, too many calls are running, try again later".formatted(this.toolName));
+        }
+        if (this.timeout.isZero()) {
+            return this.call(tool, toolUse);
+        }
+        var call = EXECUTOR.submit(() -> this.call(tool, toolUse));
+        try {
+            return call.get(this.timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            Log.error("tool %s timed out after %d ms".formatted(this.toolName, this.timeout.toMillis()));
+            return ToolResult.error(toolUse.id(), "Tool %s timed out after %d ms".formatted(this.toolName, this.timeout.toMillis()));
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            Thread.currentThread().interrupt();
+            return interrupted(toolUse);
+        } catch (ExecutionException e) {
+            return ToolResult.error(toolUse.id(), e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * The permit is held until the tool returns, also after the caller stopped waiting.
+     */
+    ToolResult call(Tool tool, ToolUse toolUse) {
+        try {
+            return ToolResult.success(toolUse.id(), tool.execute(toolUse.input()));
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                return interrupted(toolUse);
+            }
+            return ToolResult.error(toolUse.id(), e.getMessage());
+        } finally {
+            if (this.bulkhead != null) {
+                this.bulkhead.release();
+            }
+        }
+    }
+
+    static ToolResult interrupted(ToolUse toolUse) {
+        return ToolResult.error(toolUse.id(), "Tool execution interrupted: " + toolUse.name());
+    }
+}
@@ -0,0 +1,225 @@
+package airhacks.zsmith.tools.control;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import airhacks.zcfg.ZCfg;
+import airhacks.zsmith.tools.entity.ToolResult;
+import airhacks.zsmith.tools.entity.ToolUse;
+
+/**
+ * Process-wide memoization of {@link Cacheable} tool results, shared by all agents and conversations.
+ * Entries are keyed by the tool's class, its name and the canonical form of the input (sorted keys, normalized numbers),
+ * so equivalent inputs hit the same entry and different tools registered under the same name do not.
+ * Only successful results are cached. Concurrent misses for the same key are coalesced,
+ * a single call is performed and its result is shared with the waiting callers.
+ *
+ * The cache is bounded by the total length of keys and results in characters,
+ * the least recently used entries are evicted first:
+ * <pre>
+ * tool.cache.max.weight=1000000
+ * </pre>
+ */
+public class ToolResultCache {
+
+    static final long MAX_WEIGHT = ZCfg.integer("tool.cache.max.weight", 1_000_000);
+
+    static final LongAdder HITS = new LongAdder();
+    static final LongAdder MISSES = new LongAdder();
+
+    record Entry(String content, long expiresAt, int weight) {
+
+        boolean expired(long now) {
+            return now - this.expiresAt >= 0;
+        }
+    }
+
+    /** in access order, the eldest entry is the least recently used */
+    static final LinkedHashMap<String, Entry> ENTRIES = new LinkedHashMap<>(64, 0.75f, true);
+    static final ReentrantLock LOCK = new ReentrantLock();
+    static long weight;
+    /** calls in progress, keyed like the entries */
+    static final ConcurrentHashMap<String, CompletableFuture<ToolResult>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cached result with the tool use's id, or performs the call and caches a successful result.
+     */
+    public static ToolResult execute(Cacheable tool, ToolUse toolUse, Supplier<ToolResult> call) {
+        var ttl = tool.cacheTtl();
+        if (ttl.isZero() || ttl.isNegative()) {
+            return call.get();
+        }
+        var key = key(tool, toolUse.input());
+        var cached = get(key);
+        if (cached != null) {
+            HITS.increment();
+            return ToolResult.success(toolUse.id(), cached);
+        }
+        var flight = new CompletableFuture<ToolResult>();
+        var running = IN_FLIGHT.putIfAbsent(key, flight);
+        if (running != null) {
+            HITS.increment();
+            return await(running, toolUse);
+        }
+        MISSES.increment();
+        try {
+            var result = call.get();
+            if (!result.isError() && result.content() != null) {
+                put(key, result.content(), System.nanoTime() + ttl.toNanos());
+            }
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            IN_FLIGHT.remove(key, flight);
+        }
+    }
+
+    /**
+     * The shared result, also an error, with the waiting tool use's id.
+     */
+    static ToolResult await(CompletableFuture<ToolResult> running, ToolUse toolUse) {
+        try {
+            var result = running.get();
+            return new ToolResult(toolUse.id(), result.content(), result.isError());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ToolResult.error(toolUse.id(), "Tool execution interrupted: " + toolUse.name());
+        } catch (ExecutionException e) {
+            return ToolResult.error(toolUse.id(), e.getCause().getMessage());
+        }
+    }
+
+    static String get(String key) {
+        LOCK.lock();
+        try {
+            var entry = ENTRIES.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expired(System.nanoTime())) {
+                remove(key);
+                return null;
+            }
+            return entry.content();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    static void put(String key, String content, long expiresAt) {
+        var entryWeight = key.length() + content.length();
+        if (entryWeight > MAX_WEIGHT) {
+            return;
+        }
+        LOCK.lock();
+        try {
+            remove(key);
+            ENTRIES.put(key, new Entry(content, expiresAt, entryWeight));
+            weight += entryWeight;
+            var eldest = ENTRIES.entrySet().iterator();
+            while (weight > MAX_WEIGHT && eldest.hasNext()) {
+                weight -= eldest.next().getValue().weight();
+                eldest.remove();
+            }
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    static void remove(String key) {
+        var removed = ENTRIES.remove(key);
+        if (removed != null) {
+            weight -= removed.weight();
+        }
+    }
+
+    public static void clear() {
+        LOCK.lock();
+        try {
+            ENTRIES.clear();
+            weight = 0;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * @return share of cacheable tool calls answered from the cache since startup
+     */
+    public static double hitRate() {
+        var hits = HITS.sum();
+        var total = hits + MISSES.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    static String key(Tool tool, JSONObject input) {
+        var key = new StringBuilder(tool.getClass().getName())
+                .append('\n')
+                .append(tool.name())
+                .append('\n');
+        canonical(input, key);
+        return key.toString();
+    }
+
+    /**
+     * Writes the value with sorted keys and numbers without trailing zeros,
+     * e.g. {"b":1.0,"a":2} and {"a":2,"b":1} have the same canonical form.
+     */
+    static void canonical(Object value, StringBuilder out) {
+        switch (value) {
+            case JSONObject object -> {
+                out.append('{');
+                var first = true;
+                for (var name : new TreeSet<>(object.keySet())) {
+                    if (!first) {
+                        out.append(',');
+                    }
+                    first = false;
+                    out.append(JSONObject.quote(name)).append(':');
+                    canonical(object.opt(name), out);
+                }
+                out.append('}');
+            }
+            case JSONArray array -> {
+                out.append('[');
+                for (int i = 0; i < array.length(); i++) {
+                    if (i > 0) {
+                        out.append(',');
+                    }
+                    canonical(array.opt(i), out);
+                }
+                out.append(']');
+            }
+            case String string -> out.append(JSONObject.quote(string));
+            case Number number -> out.append(canonical(number));
+            case null -> out.append("null");
+            default -> out.append(JSONObject.valueToString(value));
+        }
+    }
+
+    static String canonical(Number number) {
+        if (number instanceof Integer || number instanceof Long) {
+            return number.toString();
+        }
+        var decimal = number instanceof BigDecimal d ? d : new BigDecimal(number.toString());
+        if (decimal.signum() == 0) {
+            return "0";
+        }
+        var normalized = decimal.stripTrailingZeros();
+        // integral values in plain notation, like Integer and Long: 100.0 is 100, not 1E+2
+        return normalized.scale() < 0 && normalized.scale() > -20 ? normalized.toPlainString() : normalized.toString();
+    }
+}
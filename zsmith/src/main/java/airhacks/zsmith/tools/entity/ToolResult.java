@@ -1,8 +1,16 @@
 package airhacks.zsmith.tools.entity;
 
-import org.json.JSONObject;
+import org.json.JSONByteWritable;
+import org.json.JSONByteWriter;
+import org.json.RecordCodec;
 
-public record ToolResult(String toolUseId, String content, boolean isError) {
+/**
+ * Written as tool_result content block directly into requests, without an intermediate JSONObject.
+ */
+public record ToolResult(String toolUseId, String content, boolean isError) implements JSONByteWritable {
+
+    static final RecordCodec<ToolResult> CODEC = RecordCodec.of(ToolResult.class)
+            .withConstant("type", "tool_result");
 
     public static ToolResult success(String toolUseId, String content) {
         return new ToolResult(toolUseId, content, false);
@@ -12,14 +20,13 @@ public record ToolResult(String toolUseId, String content, boolean isError) {
         return new ToolResult(toolUseId, errorMessage, true);
     }
 
-    public JSONObject toContentBlock() {
-        var block = new JSONObject()
-                .put("type", "tool_result")
-                .put("tool_use_id", this.toolUseId)
-                .put("content", this.content);
-        if (this.isError) {
-            block.put("is_error", true);
-        }
-        return block;
+    @Override
+    public void writeJSON(JSONByteWriter writer) {
+        CODEC.write(this, writer);
+    }
+
+    @Override
+    public String toJSONString() {
+        return CODEC.toJSONString(this);
     }
 }
@@ -1,14 +1,36 @@
 package airhacks.zsmith.tools.entity;
 
 import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.json.RecordCodec;
 
 public record ToolUse(String id, String name, JSONObject input) {
 
-    public static ToolUse fromJSON(JSONObject json) {
-        var id = json.getString("id");
-        var name = json.getString("name");
-        var input = json.optJSONObject("input");
-        return new ToolUse(id, name, input != null ? input : new JSONObject());
+    static final RecordCodec<ToolUse> CODEC = RecordCodec.of(ToolUse.class)
+            .withConstant("type", "tool_use");
+
+    /**
+     * @throws IllegalArgumentException if the id or the name is missing
+     */
+    public ToolUse {
+        if (id == null || name == null) {
+            throw new IllegalArgumentException("tool_use requires an id and a name, was: id=%s, name=%s".formatted(id, name));
+        }
+        input = input != null ? input : new JSONObject();
+    }
+
+    /**
+     * Reads the tool use with the codec, the tokener is positioned before the tool_use object.
+     */
+    public static ToolUse fromJSON(JSONTokener tokener) {
+        return CODEC.read(tokener);
+    }
+
+    /**
+     * A content block of an already parsed response, which the agent also needs as tree for its text and memory.
+     */
+    public static ToolUse fromContentBlock(JSONObject contentBlock) {
+        return CODEC.read(contentBlock);
     }
 
     public static boolean isToolUse(JSONObject contentBlock) {
@@ -0,0 +1,324 @@
+package org.json;
+
+/*
+Public Domain.
+ */
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * The storage of a JSONObject. Most JSON objects (content blocks, messages,
+ * tool inputs) have only a handful of keys, which are kept in insertion order
+ * in a single array of alternating keys and values and found by a linear scan,
+ * without hashing and without an entry object per key. Past
+ * {@link #MAX_COMPACT_SIZE} keys the entries move into a HashMap, which does
+ * not keep the insertion order.
+ * <p>
+ * Keys and values must not be null, JSONObject never stores either.
+ */
+class CompactMap extends AbstractMap<String, Object> {
+
+    /** the largest number of keys kept in the array. */
+    static final int MAX_COMPACT_SIZE = 8;
+
+    private static final Object[] EMPTY = {};
+
+    /** keys at even, values at odd indexes, null after the upgrade. */
+    private Object[] table = EMPTY;
+    /** number of keys in the table. */
+    private int size;
+    /** the storage after the upgrade, null before. */
+    private HashMap<String, Object> hashMap;
+    /** structural modifications, for fail-fast iteration. */
+    private int modCount;
+    private Set<Entry<String, Object>> entrySet;
+
+    CompactMap() {
+    }
+
+    /**
+     * @param expectedSize number of keys, more than {@link #MAX_COMPACT_SIZE} start with a HashMap.
+     */
+    CompactMap(int expectedSize) {
+        if (expectedSize > MAX_COMPACT_SIZE) {
+            this.table = null;
+            this.hashMap = new HashMap<>(expectedSize);
+        } else if (expectedSize > 0) {
+            this.table = new Object[expectedSize * 2];
+        }
+    }
+
+    /**
+     * @return true while the keys are kept in the array.
+     */
+    boolean isCompact() {
+        return this.hashMap == null;
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < this.size * 2; i += 2) {
+            Object candidate = this.table[i];
+            if (candidate == key || candidate.equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return this.hashMap != null ? this.hashMap.size() : this.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (this.hashMap != null) {
+            return this.hashMap.containsKey(key);
+        }
+        return key != null && this.indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (this.hashMap != null) {
+            return this.hashMap.get(key);
+        }
+        if (key == null) {
+            return null;
+        }
+        int index = this.indexOf(key);
+        return index < 0 ? null : this.table[index + 1];
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (this.hashMap != null) {
+            return this.hashMap.put(key, value);
+        }
+        if (key == null) {
+            throw new NullPointerException("Null key.");
+        }
+        int index = this.indexOf(key);
+        if (index >= 0) {
+            Object previous = this.table[index + 1];
+            this.table[index + 1] = value;
+            return previous;
+        }
+        this.modCount++;
+        if (this.size == MAX_COMPACT_SIZE) {
+            this.upgrade();
+            return this.hashMap.put(key, value);
+        }
+        if (this.size * 2 == this.table.length) {
+            var grown = new Object[Math.min(Math.max(4, this.size * 2), MAX_COMPACT_SIZE) * 2];
+            System.arraycopy(this.table, 0, grown, 0, this.size * 2);
+            this.table = grown;
+        }
+        this.table[this.size * 2] = key;
+        this.table[this.size * 2 + 1] = value;
+        this.size++;
+        return null;
+    }
+
+    private void upgrade() {
+        var upgraded = new HashMap<String, Object>(MAX_COMPACT_SIZE * 4);
+        for (int i = 0; i < this.size * 2; i += 2) {
+            upgraded.put((String) this.table[i], this.table[i + 1]);
+        }
+        this.hashMap = upgraded;
+        this.table = null;
+        this.size = 0;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (this.hashMap != null) {
+            return this.hashMap.remove(key);
+        }
+        if (key == null) {
+            return null;
+        }
+        int index = this.indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        Object previous = this.table[index + 1];
+        this.removeAt(index);
+        return previous;
+    }
+
+    private void removeAt(int index) {
+        this.modCount++;
+        int last = this.size * 2 - 2;
+        System.arraycopy(this.table, index + 2, this.table, index, last - index);
+        this.table[last] = null;
+        this.table[last + 1] = null;
+        this.size--;
+    }
+
+    @Override
+    public void clear() {
+        if (this.hashMap != null) {
+            this.hashMap = null;
+            this.table = EMPTY;
+        }
+        this.modCount++;
+        for (int i = 0; i < this.size * 2; i++) {
+            this.table[i] = null;
+        }
+        this.size = 0;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        if (this.hashMap != null) {
+            this.hashMap.forEach(action);
+            return;
+        }
+        int expectedModCount = this.modCount;
+        for (int i = 0; i < this.size * 2; i += 2) {
+            action.accept((String) this.table[i], this.table[i + 1]);
+            if (this.modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * A live view, removals and {@link Map.Entry#setValue(Object)} write through.
+     */
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (this.entrySet == null) {
+            this.entrySet = new EntrySet();
+        }
+        return this.entrySet;
+    }
+
+    final class EntrySet extends AbstractSet<Entry<String, Object>> {
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            if (CompactMap.this.hashMap != null) {
+                return CompactMap.this.hashMap.entrySet().iterator();
+            }
+            return new CompactIterator();
+        }
+
+        @Override
+        public int size() {
+            return CompactMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            CompactMap.this.clear();
+        }
+    }
+
+    final class CompactIterator implements Iterator<Entry<String, Object>> {
+
+        int next;
+        int current = -1;
+        int expectedModCount = CompactMap.this.modCount;
+
+        /**
+         * Fails instead of ending the iteration early when the map was modified, e.g. upgraded to a HashMap.
+         */
+        @Override
+        public boolean hasNext() {
+            this.checkForComodification();
+            return this.next < CompactMap.this.size * 2;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            this.checkForComodification();
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.current = this.next;
+            this.next += 2;
+            return new CompactEntry((String) CompactMap.this.table[this.current], this.current);
+        }
+
+        @Override
+        public void remove() {
+            if (this.current < 0) {
+                throw new IllegalStateException();
+            }
+            this.checkForComodification();
+            CompactMap.this.removeAt(this.current);
+            this.next = this.current;
+            this.current = -1;
+            this.expectedModCount = CompactMap.this.modCount;
+        }
+
+        void checkForComodification() {
+            if (CompactMap.this.modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Reads and writes the value at its index, valid until the next structural modification.
+     */
+    final class CompactEntry implements Entry<String, Object> {
+
+        final String key;
+        final int index;
+
+        CompactEntry(String key, int index) {
+            this.key = key;
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return this.key;
+        }
+
+        @Override
+        public Object getValue() {
+            return CompactMap.this.table[this.index + 1];
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object previous = CompactMap.this.table[this.index + 1];
+            CompactMap.this.table[this.index + 1] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry<?, ?> e
+                    && this.key.equals(e.getKey())
+                    && this.getValue().equals(e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return this.key.hashCode() ^ this.getValue().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return this.key + "=" + this.getValue();
+        }
+    }
+}
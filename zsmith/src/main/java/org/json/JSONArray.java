@@ -9,8 +9,11 @@ import java.io.UncheckedIOException;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -65,7 +68,12 @@ public class JSONArray implements Iterable<Object> {
     /**
      * The arrayList where the JSONArray's properties are kept.
      */
-    private final ArrayList<Object> myArrayList;
+    private List<Object> myArrayList;
+
+    /**
+     * The UTF-8 serialization of a frozen JSONArray, null until {@link #freeze()}.
+     */
+    private byte[] frozen;
 
     /**
      * Construct an empty JSONArray.
@@ -195,6 +203,30 @@ public class JSONArray implements Iterable<Object> {
         this(new JSONTokener(source, jsonParserConfiguration), jsonParserConfiguration);
     }
 
+    /**
+     * Construct a JSONArray from UTF-8 encoded JSON text, parsed with a
+     * {@link JSONByteTokener} without decoding the text into a String first.
+     *
+     * @param utf8
+     *            The remaining bytes of the buffer, beginning with <code>[</code>.
+     *            The buffer's position is not changed.
+     */
+    public JSONArray(ByteBuffer utf8) {
+        this(utf8, new JSONParserConfiguration());
+    }
+
+    /**
+     * Construct a JSONArray from UTF-8 encoded JSON text with custom json parse configurations.
+     *
+     * @param utf8
+     *            The remaining bytes of the buffer, beginning with <code>[</code>.
+     *            The buffer's position is not changed.
+     * @param jsonParserConfiguration the parser config object
+     */
+    public JSONArray(ByteBuffer utf8, JSONParserConfiguration jsonParserConfiguration) {
+        this(new JSONByteTokener(utf8, jsonParserConfiguration), jsonParserConfiguration);
+    }
+
     /**
      * Construct a JSONArray from a Collection.
      *
@@ -632,6 +664,46 @@ public class JSONArray implements Iterable<Object> {
         this.myArrayList.clear();
     }
 
+    /**
+     * Makes this JSONArray and the JSONObjects and JSONArrays it contains
+     * immutable and serializes it once, see {@link JSONObject#freeze()}.
+     * <p>
+     * Changing a frozen JSONArray throws an UnsupportedOperationException.
+     *
+     * @return this.
+     * @throws IllegalStateException if a value cannot be serialized.
+     */
+    public JSONArray freeze() {
+        if (this.frozen == null) {
+            for (Object value : this.myArrayList) {
+                JSONObject.freeze(value);
+            }
+            this.myArrayList = Collections.unmodifiableList(this.myArrayList);
+            this.frozen = new JSONByteWriter(Math.max(this.myArrayList.size() * 16, 16)).value(this).toByteArray();
+        }
+        return this;
+    }
+
+    /**
+     * @return true if this JSONArray was frozen with {@link #freeze()}.
+     */
+    public boolean isFrozen() {
+        return this.frozen != null;
+    }
+
+    /**
+     * @return the serialized form of a frozen JSONArray, otherwise null.
+     */
+    byte[] frozen() {
+        return this.frozen;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (this.myArrayList instanceof ArrayList<Object> list) {
+            list.ensureCapacity(minCapacity);
+        }
+    }
+
     /**
      * Get the optional object value associated with an index.
      *
@@ -1455,7 +1527,7 @@ public class JSONArray implements Iterable<Object> {
         }
         // if we are inserting past the length, we want to grow the array all at once
         // instead of incrementally.
-        this.myArrayList.ensureCapacity(index + 1);
+        this.ensureCapacity(index + 1);
         while (index != this.length()) {
             // we don't need to test validity of NULL objects
             this.myArrayList.add(JSONObject.NULL);
@@ -1666,6 +1738,9 @@ public class JSONArray implements Iterable<Object> {
      *         &nbsp;<small>(right bracket)</small>.
      */
     public String toString(int indentFactor) {
+        if (this.frozen != null && indentFactor <= 0) {
+            return new String(this.frozen, StandardCharsets.UTF_8);
+        }
         // each value requires a comma, so multiply the count by 2
         // We don't want to oversize the initial capacity
         int initialSize = myArrayList.size() * 2;
@@ -1716,6 +1791,9 @@ public class JSONArray implements Iterable<Object> {
     @SuppressWarnings("resource")
     public Appendable write(Appendable writer, int indentFactor, int indent) {
         try {
+            if (this.frozen != null && indentFactor <= 0) {
+                return writer.append(new String(this.frozen, StandardCharsets.UTF_8));
+            }
             boolean needsComma = false;
             int length = this.length();
             writer.append('[');
@@ -1814,7 +1892,7 @@ public class JSONArray implements Iterable<Object> {
      *            Variable for tracking the count of nested object creations.
      */
     private void addAll(Collection<?> collection, boolean wrap, int recursionDepth, JSONParserConfiguration jsonParserConfiguration) {
-        this.myArrayList.ensureCapacity(this.myArrayList.size() + collection.size());
+        this.ensureCapacity(this.myArrayList.size() + collection.size());
         if (wrap) {
             for (Object o: collection){
                 this.put(JSONObject.wrap(o, recursionDepth + 1, jsonParserConfiguration));
@@ -1902,7 +1980,7 @@ public class JSONArray implements Iterable<Object> {
     private void addAll(Object array, boolean wrap, int recursionDepth, JSONParserConfiguration jsonParserConfiguration) {
         if (array.getClass().isArray()) {
             int length = Array.getLength(array);
-            this.myArrayList.ensureCapacity(this.myArrayList.size() + length);
+            this.ensureCapacity(this.myArrayList.size() + length);
             if (wrap) {
                 for (int i = 0; i < length; i += 1) {
                     this.put(JSONObject.wrap(Array.get(array, i), recursionDepth + 1, jsonParserConfiguration));
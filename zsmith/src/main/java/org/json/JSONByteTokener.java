@@ -0,0 +1,469 @@
+package org.json;
+
+/*
+Public Domain.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A JSONByteTokener parses UTF-8 encoded JSON directly from a byte array, the
+ * form in which HTTP bodies arrive. Compared to {@link JSONTokener} it avoids
+ * the Reader and the character-by-character decoding: whitespace, strings and
+ * unquoted values are scanned in bulk, ASCII runs are copied into Strings
+ * without decoding. Line and column are only computed when a syntax error is
+ * reported.
+ * <p>
+ * The tokener can be passed to the JSONObject and JSONArray constructors, or
+ * used via {@link JSONObject#JSONObject(ByteBuffer)} and
+ * {@link JSONArray#JSONArray(ByteBuffer)}.
+ */
+public class JSONByteTokener extends JSONTokener {
+
+    /** the UTF-8 encoded source. */
+    private final byte[] bytes;
+    /** index of the first byte of the source. */
+    private final int start;
+    /** index after the last byte of the source. */
+    private final int limit;
+    /** index of the next byte to read. */
+    private int position;
+    /** previous character read from the input. */
+    private char previous;
+    /** flag to indicate that a previous character was requested. */
+    private boolean usePrevious;
+    /** low surrogate of a supplementary character, delivered with the next call of next(). */
+    private char pendingLowSurrogate;
+    /** flag to indicate if the end of the input has been found. */
+    private boolean eof;
+
+    /**
+     * Construct a JSONByteTokener from UTF-8 encoded bytes.
+     *
+     * @param bytes the source, not copied.
+     */
+    public JSONByteTokener(byte[] bytes) {
+        this(bytes, 0, bytes.length, new JSONParserConfiguration());
+    }
+
+    /**
+     * Construct a JSONByteTokener from a range of UTF-8 encoded bytes.
+     *
+     * @param bytes the source, not copied.
+     * @param offset index of the first byte.
+     * @param length number of bytes.
+     * @param jsonParserConfiguration A JSONParserConfiguration instance that controls the behavior of the parser.
+     */
+    public JSONByteTokener(byte[] bytes, int offset, int length, JSONParserConfiguration jsonParserConfiguration) {
+        super(jsonParserConfiguration);
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + bytes.length);
+        }
+        this.bytes = bytes;
+        this.start = offset;
+        this.limit = offset + length;
+        this.position = offset;
+    }
+
+    /**
+     * Construct a JSONByteTokener from the remaining bytes of a buffer.
+     * Heap buffers are parsed in place, direct buffers are copied.
+     *
+     * @param buffer the UTF-8 encoded source. Its position is not changed.
+     */
+    public JSONByteTokener(ByteBuffer buffer) {
+        this(buffer, new JSONParserConfiguration());
+    }
+
+    /**
+     * Construct a JSONByteTokener from the remaining bytes of a buffer.
+     *
+     * @param buffer the UTF-8 encoded source. Its position is not changed.
+     * @param jsonParserConfiguration A JSONParserConfiguration instance that controls the behavior of the parser.
+     */
+    public JSONByteTokener(ByteBuffer buffer, JSONParserConfiguration jsonParserConfiguration) {
+        this(array(buffer), offset(buffer), buffer.remaining(), jsonParserConfiguration);
+    }
+
+    private static byte[] array(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return buffer.array();
+        }
+        var copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+        return copy;
+    }
+
+    private static int offset(ByteBuffer buffer) {
+        return buffer.hasArray() ? buffer.arrayOffset() + buffer.position() : 0;
+    }
+
+    @Override
+    public void back() {
+        if (this.usePrevious || this.previous == 0) {
+            throw new IllegalStateException("Stepping back two steps is not supported");
+        }
+        this.usePrevious = true;
+        this.eof = false;
+    }
+
+    @Override
+    public boolean end() {
+        return this.eof && !this.usePrevious;
+    }
+
+    @Override
+    public boolean more() {
+        if (this.usePrevious || this.pendingLowSurrogate != 0) {
+            return true;
+        }
+        if (this.position >= this.limit || this.bytes[this.position] == 0) {
+            this.eof = true;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public char next() {
+        if (this.usePrevious) {
+            this.usePrevious = false;
+            return this.previous;
+        }
+        if (this.pendingLowSurrogate != 0) {
+            this.previous = this.pendingLowSurrogate;
+            this.pendingLowSurrogate = 0;
+            return this.previous;
+        }
+        if (this.position >= this.limit) {
+            this.eof = true;
+            return 0;
+        }
+        int b = this.bytes[this.position];
+        if (b >= 0) {
+            if (b == 0) {
+                this.eof = true;
+                return 0;
+            }
+            this.position++;
+            this.previous = (char) b;
+            return this.previous;
+        }
+        return this.previous = this.decode();
+    }
+
+    /**
+     * Decodes a multi-byte sequence, supplementary characters are returned as surrogate pair.
+     */
+    private char decode() {
+        int b = this.bytes[this.position++] & 0xFF;
+        int codePoint;
+        int continuations;
+        if (b >= 0xF0) {
+            codePoint = b & 0x07;
+            continuations = 3;
+        } else if (b >= 0xE0) {
+            codePoint = b & 0x0F;
+            continuations = 2;
+        } else if (b >= 0xC0) {
+            codePoint = b & 0x1F;
+            continuations = 1;
+        } else {
+            throw this.syntaxError("Invalid UTF-8 start byte " + b);
+        }
+        if (this.position + continuations > this.limit) {
+            throw this.syntaxError("Truncated UTF-8 sequence");
+        }
+        for (int i = 0; i < continuations; i++) {
+            int continuation = this.bytes[this.position++] & 0xFF;
+            if ((continuation & 0xC0) != 0x80) {
+                throw this.syntaxError("Invalid UTF-8 continuation byte " + continuation);
+            }
+            codePoint = (codePoint << 6) | (continuation & 0x3F);
+        }
+        if (Character.isSupplementaryCodePoint(codePoint)) {
+            this.pendingLowSurrogate = Character.lowSurrogate(codePoint);
+            return Character.highSurrogate(codePoint);
+        }
+        return (char) codePoint;
+    }
+
+    @Override
+    protected char getPrevious() {
+        return this.previous;
+    }
+
+    @Override
+    public char nextClean() {
+        if (!this.usePrevious && this.pendingLowSurrogate == 0) {
+            while (this.position < this.limit) {
+                byte b = this.bytes[this.position];
+                if (b > ' ' || b <= 0) {
+                    break;
+                }
+                this.position++;
+            }
+        }
+        return super.nextClean();
+    }
+
+    /**
+     * Scans runs of unescaped characters in bulk, runs of ASCII characters are not decoded.
+     */
+    @Override
+    public String nextString(char quote) {
+        if (this.usePrevious || this.pendingLowSurrogate != 0) {
+            return super.nextString(quote);
+        }
+        StringBuilder sb = null;
+        int runStart = this.position;
+        boolean ascii = true;
+        for (;;) {
+            if (this.position >= this.limit) {
+                throw this.syntaxError("Unterminated string. " +
+                        "Character with int code 0 is not allowed within a quoted string.");
+            }
+            byte b = this.bytes[this.position];
+            if (b < 0) {
+                ascii = false;
+            } else if (b == quote || b == '\\' || b == '\n' || b == '\r' || b == 0) {
+                var run = this.string(runStart, this.position, ascii);
+                this.position++;
+                if (b == quote) {
+                    this.previous = quote;
+                    return sb == null ? run : sb.append(run).toString();
+                }
+                if (b != '\\') {
+                    throw this.syntaxError("Unterminated string. " +
+                            "Character with int code " + b + " is not allowed within a quoted string.");
+                }
+                if (sb == null) {
+                    sb = new StringBuilder(run.length() + 16);
+                }
+                sb.append(run);
+                this.escape(sb);
+                runStart = this.position;
+                ascii = true;
+                continue;
+            }
+            this.position++;
+        }
+    }
+
+    /**
+     * Hashes keys of ASCII characters without escapes directly over the bytes,
+     * a String is only allocated for keys not found in the table.
+     */
+    @Override
+    String nextQuotedKey(char quote, KeyTable keyTable) {
+        if (this.usePrevious || this.pendingLowSurrogate != 0) {
+            return super.nextQuotedKey(quote, keyTable);
+        }
+        int keyStart = this.position;
+        int hash = 0;
+        for (int i = keyStart; i < this.limit; i++) {
+            byte b = this.bytes[i];
+            if (b == quote) {
+                this.position = i + 1;
+                this.previous = quote;
+                return keyTable.key(this.bytes, keyStart, i, hash);
+            }
+            if (b < ' ' || b == '\\') {
+                break;
+            }
+            hash = 31 * hash + b;
+        }
+        return keyTable.key(this.nextString(quote));
+    }
+
+    private void escape(StringBuilder sb) {
+        if (this.position >= this.limit) {
+            throw this.syntaxError("Unterminated string. " +
+                    "Character with int code 0 is not allowed within a quoted string.");
+        }
+        char c = (char) (this.bytes[this.position++] & 0xFF);
+        switch (c) {
+            case 'b' -> sb.append('\b');
+            case 't' -> sb.append('\t');
+            case 'n' -> sb.append('\n');
+            case 'f' -> sb.append('\f');
+            case 'r' -> sb.append('\r');
+            case 'u' -> {
+                if (this.position + 4 > this.limit) {
+                    throw this.syntaxError("Substring bounds error");
+                }
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = dehexchar((char) this.bytes[this.position + i]);
+                    if (digit < 0) {
+                        throw this.syntaxError("Illegal escape. \\u must be followed by a 4 digit hexadecimal number. \\"
+                                + this.string(this.position, this.position + 4, false) + " is not valid.");
+                    }
+                    value = (value << 4) | digit;
+                }
+                this.position += 4;
+                sb.append((char) value);
+            }
+            case '"', '\'', '\\', '/' -> sb.append(c);
+            default -> throw this.syntaxError("Illegal escape. Escape sequence  \\" + c + " is not valid.");
+        }
+    }
+
+    private String string(int from, int to, boolean ascii) {
+        return new String(this.bytes, from, to - from, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Scans unquoted values (numbers, true, false, null) in bulk.
+     */
+    @Override
+    Object nextSimpleValue(char c) {
+        if (c == '"' || c == '\'' || c >= 0x80 || this.usePrevious || this.pendingLowSurrogate != 0
+                || this.position == this.start || this.bytes[this.position - 1] != c) {
+            return super.nextSimpleValue(c);
+        }
+        int tokenStart = this.position - 1;
+        int end = tokenStart;
+        boolean ascii = true;
+        while (end < this.limit) {
+            byte b = this.bytes[end];
+            if (b < 0) {
+                ascii = false;
+            } else if (b < ' ' || ",:]}/\\\"[{;=#".indexOf(b) >= 0) {
+                break;
+            }
+            end++;
+        }
+        if (end == tokenStart) {
+            throw this.syntaxError("Missing value");
+        }
+        this.position = end;
+        this.previous = (char) (this.bytes[end - 1] & 0xFF);
+        if (ascii) {
+            Number number = this.scanNumber(tokenStart, end);
+            if (number != null) {
+                return number;
+            }
+        }
+        return this.simpleValue(this.string(tokenStart, end, ascii).trim());
+    }
+
+    /**
+     * Scans the bytes with {@link JSONTokener#scanNumber(java.util.function.IntUnaryOperator, int, int)}, ASCII bytes are their characters.
+     */
+    private Number scanNumber(int from, int to) {
+        byte[] b = this.bytes;
+        return scanNumber(index -> b[index], from, to);
+    }
+
+    /**
+     * With {@link JSONParserConfiguration#isLazyParsing()} nested objects and
+     * arrays are only scanned for their closing bracket.
+     */
+    @Override
+    Object nextMemberValue() {
+        var configuration = this.getJsonParserConfiguration();
+        if (configuration == null || !configuration.isLazyParsing()) {
+            return this.nextValue();
+        }
+        char c = this.nextClean();
+        if ((c != '{' && c != '[') || this.usePrevious || this.bytes[this.position - 1] != c) {
+            this.back();
+            return this.nextValue();
+        }
+        int sliceStart = this.position - 1;
+        this.position = this.skipNested(this.position);
+        return new JSONSlice(this.bytes, sliceStart, this.position, configuration);
+    }
+
+    /**
+     * Finds the end of a nested object or array, brackets within strings are ignored.
+     *
+     * @param from index after the opening bracket.
+     * @return index after the closing bracket.
+     */
+    private int skipNested(int from) {
+        int depth = 1;
+        int i = from;
+        while (i < this.limit) {
+            byte b = this.bytes[i++];
+            switch (b) {
+                case '{', '[' -> depth++;
+                case '}', ']' -> {
+                    if (--depth == 0) {
+                        return i;
+                    }
+                }
+                case '"', '\'' -> {
+                    while (i < this.limit && this.bytes[i] != b) {
+                        i += this.bytes[i] == '\\' ? 2 : 1;
+                    }
+                    i++;
+                }
+                case 0 -> i = this.limit;
+                default -> {
+                    // skipped
+                }
+            }
+        }
+        this.position = this.limit;
+        throw this.syntaxError("Unterminated nested value");
+    }
+
+    @Override
+    public char skipTo(char to) {
+        int startPosition = this.position;
+        boolean startUsePrevious = this.usePrevious;
+        char startPrevious = this.previous;
+        char c;
+        do {
+            c = this.next();
+            if (c == 0) {
+                this.position = startPosition;
+                this.usePrevious = startUsePrevious;
+                this.previous = startPrevious;
+                this.eof = false;
+                return 0;
+            }
+        } while (c != to);
+        this.back();
+        return c;
+    }
+
+    /**
+     * Computes the position by scanning the source up to the current byte, only done for error messages.
+     *
+     * @return " at {index} [character {character} line {line}]"
+     */
+    @Override
+    public String toString() {
+        long index = 0;
+        long character = 1;
+        long line = 1;
+        byte previousByte = 0;
+        int end = Math.min(this.position, this.limit);
+        for (int i = this.start; i < end; i++) {
+            byte b = this.bytes[i];
+            if ((b & 0xC0) == 0x80) {
+                continue;
+            }
+            index++;
+            if (b == '\r' || (b == '\n' && previousByte != '\r')) {
+                line++;
+                character = 0;
+            } else if (b == '\n') {
+                character = 0;
+            } else {
+                character++;
+            }
+            previousByte = b;
+        }
+        return " at " + index + " [character " + character + " line " + line + "]";
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+}
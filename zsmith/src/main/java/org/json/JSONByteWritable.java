@@ -0,0 +1,27 @@
+package org.json;
+
+/*
+Public Domain.
+ */
+
+/**
+ * A <code>JSONString</code> which also writes itself directly into a
+ * {@link JSONByteWriter}, e.g. a record with a {@link RecordCodec}. The
+ * JSONByteWriter uses <code>writeJSON</code> instead of encoding the
+ * <code>toJSONString()</code> text, other serializers use
+ * <code>toJSONString()</code>. Both have to produce the same JSON text.
+ *
+ * <pre>
+ * public void writeJSON(JSONByteWriter writer) {
+ *     CODEC.write(this, writer);
+ * }
+ * </pre>
+ */
+public interface JSONByteWritable extends JSONString {
+    /**
+     * Writes the UTF-8 encoded JSON text of this value.
+     *
+     * @param writer the target.
+     */
+    public void writeJSON(JSONByteWriter writer);
+}
@@ -0,0 +1,465 @@
+package org.json;
+
+/*
+Public Domain.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A JSONByteWriter serializes JSONObjects, JSONArrays and any other value
+ * accepted by {@link JSONObject#put(String, Object)} directly into UTF-8
+ * encoded bytes, without building an intermediate String. The output is the
+ * same as the compact <code>toString()</code> of the value.
+ * <p>
+ * Without an OutputStream the bytes are collected in a growing buffer, which
+ * can be accessed without copying via {@link #toByteBuffer()} and reused after
+ * {@link #reset()}. With an OutputStream the buffer is flushed whenever it is
+ * full:
+ *
+ * <pre>
+ * new JSONByteWriter(outputStream)
+ *     .value(jsonObject)
+ *     .flush();
+ * </pre>
+ */
+public class JSONByteWriter {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int STREAM_BUFFER_SIZE = 8192;
+    /** the largest number of bytes written without checking the capacity again. */
+    private static final int MAX_CHUNK = 8;
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    /** the target of flushed bytes, null if the bytes are collected in the buffer. */
+    private final OutputStream out;
+    /** the UTF-8 encoded output. */
+    private byte[] buffer;
+    /** number of valid bytes in the buffer. */
+    private int count;
+
+    /**
+     * Construct a JSONByteWriter collecting the output in a growing buffer.
+     */
+    public JSONByteWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Construct a JSONByteWriter collecting the output in a growing buffer.
+     *
+     * @param initialCapacity the initial size of the buffer in bytes.
+     */
+    public JSONByteWriter(int initialCapacity) {
+        this.out = null;
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * Construct a JSONByteWriter streaming the output into an OutputStream.
+     * {@link #flush()} has to be called after the last value.
+     *
+     * @param out the target, not closed by the writer.
+     */
+    public JSONByteWriter(OutputStream out) {
+        this.out = out;
+        this.buffer = new byte[STREAM_BUFFER_SIZE];
+    }
+
+    /**
+     * Append the UTF-8 encoded JSON text of a value.
+     *
+     * @param value a JSONObject, JSONArray, JSONByteWritable, JSONString, String, Number, Boolean,
+     *              Enum, Map, Collection, array, null or JSONObject.NULL. Other
+     *              objects are written as quoted <code>toString()</code>.
+     * @return this.
+     * @throws UncheckedIOException if the OutputStream fails.
+     * @throws IllegalStateException if a JSONString fails.
+     */
+    public JSONByteWriter value(Object value) {
+        try {
+            this.writeValue(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Append already serialized, UTF-8 encoded JSON text verbatim, e.g. cached
+     * bytes of earlier values. The bytes are copied, not validated.
+     *
+     * @param json the bytes.
+     * @param from index of the first byte.
+     * @param to   index after the last byte.
+     * @return this.
+     * @throws UncheckedIOException if the OutputStream fails.
+     */
+    public JSONByteWriter raw(byte[] json, int from, int to) {
+        try {
+            this.write(json, from, to);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Write the buffered bytes to the OutputStream and flush it. Does nothing
+     * for a buffer-only writer.
+     *
+     * @return this.
+     * @throws UncheckedIOException if the OutputStream fails.
+     */
+    public JSONByteWriter flush() {
+        if (this.out == null) {
+            return this;
+        }
+        try {
+            this.drain();
+            this.out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    /**
+     * @return the number of bytes in the buffer.
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Discard the buffered bytes, the buffer is kept for the next value.
+     */
+    public void reset() {
+        this.count = 0;
+    }
+
+    /**
+     * @return a view of the buffered bytes, valid until the writer is reset or written to.
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(this.buffer, 0, this.count).slice();
+    }
+
+    /**
+     * @return a copy of the buffered bytes.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(this.buffer, this.count);
+    }
+
+    /**
+     * Write the buffered bytes to an OutputStream.
+     *
+     * @param target the stream.
+     * @throws IOException if the stream fails.
+     */
+    public void writeTo(OutputStream target) throws IOException {
+        target.write(this.buffer, 0, this.count);
+    }
+
+    /**
+     * @return the buffered bytes decoded as String.
+     */
+    @Override
+    public String toString() {
+        return new String(this.buffer, 0, this.count, StandardCharsets.UTF_8);
+    }
+
+    void writeValue(Object value) throws IOException {
+        if (value == null || value.equals(null)) {
+            this.write(NULL);
+        } else if (value instanceof JSONSlice slice) {
+            Object parsed = slice.parsed();
+            if (parsed != null) {
+                // the parsed value may have been modified
+                this.writeValue(parsed);
+            } else {
+                this.write(slice.bytes, slice.from, slice.to);
+            }
+        } else if (value instanceof JSONByteWritable writable) {
+            writable.writeJSON(this);
+        } else if (value instanceof JSONString jsonString) {
+            this.writeJSONString(jsonString);
+        } else if (value instanceof String string) {
+            this.writeQuoted(string);
+        } else if (value instanceof JSONObject object) {
+            this.writeObject(object);
+        } else if (value instanceof JSONArray array) {
+            this.writeArray(array);
+        } else if (value instanceof Number number) {
+            this.writeNumber(number);
+        } else if (value instanceof Boolean b) {
+            this.write(b ? TRUE : FALSE);
+        } else if (value instanceof Enum<?> e) {
+            this.writeQuoted(e.name());
+        } else if (value instanceof Map<?, ?> map) {
+            this.writeObject(new JSONObject(map));
+        } else if (value instanceof Collection<?> collection) {
+            this.writeArray(new JSONArray(collection));
+        } else if (value.getClass().isArray()) {
+            this.writeArray(new JSONArray(value));
+        } else {
+            this.writeQuoted(value.toString());
+        }
+    }
+
+    private void writeObject(JSONObject object) throws IOException {
+        byte[] frozen = object.frozen();
+        if (frozen != null) {
+            this.write(frozen);
+            return;
+        }
+        this.write('{');
+        boolean comma = false;
+        for (Entry<String, Object> entry : object.rawEntrySet()) {
+            if (comma) {
+                this.write(',');
+            }
+            this.writeQuoted(entry.getKey());
+            this.write(':');
+            try {
+                this.writeValue(entry.getValue());
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to write JSONObject value for key: " + entry.getKey(), e);
+            }
+            comma = true;
+        }
+        this.write('}');
+    }
+
+    private void writeArray(JSONArray array) throws IOException {
+        byte[] frozen = array.frozen();
+        if (frozen != null) {
+            this.write(frozen);
+            return;
+        }
+        this.write('[');
+        int length = array.length();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                this.write(',');
+            }
+            try {
+                this.writeValue(array.opt(i));
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to write JSONArray value at index: " + i, e);
+            }
+        }
+        this.write(']');
+    }
+
+    /**
+     * JSONStrings are written verbatim, like in {@link JSONObject#toString()}.
+     */
+    private void writeJSONString(JSONString value) throws IOException {
+        Object json;
+        try {
+            json = value.toJSONString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        if (json == null) {
+            this.writeQuoted(value.toString());
+        } else {
+            this.writeRaw(json.toString());
+        }
+    }
+
+    /**
+     * Not all Numbers are valid JSON numbers, e.g. NaN or fractions, those are quoted.
+     */
+    private void writeNumber(Number number) throws IOException {
+        String string = JSONObject.numberToString(number);
+        if (number instanceof Integer || number instanceof Long
+                || JSONObject.NUMBER_PATTERN.matcher(string).matches()) {
+            this.writeRaw(string);
+        } else {
+            this.writeQuoted(string);
+        }
+    }
+
+    /**
+     * Same escaping as {@link JSONObject#quote(String)}, the common case of
+     * printable ASCII is copied without further checks.
+     */
+    private void writeQuoted(String string) throws IOException {
+        int length = string.length();
+        this.ensure(length + 2);
+        this.buffer[this.count++] = '"';
+        char previous = 0;
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c >= ' ' && c < 0x80 && c != '"' && c != '\\' && c != '/') {
+                if (this.count == this.buffer.length) {
+                    this.ensure(length - i + 1);
+                }
+                this.buffer[this.count++] = (byte) c;
+            } else {
+                if (this.escape(c, previous, string, i)) {
+                    c = string.charAt(++i);
+                }
+            }
+            previous = c;
+        }
+        this.write('"');
+    }
+
+    /**
+     * @return true if the low surrogate at index + 1 was consumed.
+     */
+    private boolean escape(char c, char previous, String string, int index) throws IOException {
+        switch (c) {
+            case '\\', '"' -> this.write('\\', c);
+            case '/' -> {
+                if (previous == '<') {
+                    this.write('\\', c);
+                } else {
+                    this.write(c);
+                }
+            }
+            case '\b' -> this.write('\\', 'b');
+            case '\t' -> this.write('\\', 't');
+            case '\n' -> this.write('\\', 'n');
+            case '\f' -> this.write('\\', 'f');
+            case '\r' -> this.write('\\', 'r');
+            default -> {
+                if (c < ' ' || (c >= 0x80 && c < 0xA0) || (c >= 0x2000 && c < 0x2100)) {
+                    this.ensure(6);
+                    this.buffer[this.count++] = '\\';
+                    this.buffer[this.count++] = 'u';
+                    this.buffer[this.count++] = HEX[(c >> 12) & 0xF];
+                    this.buffer[this.count++] = HEX[(c >> 8) & 0xF];
+                    this.buffer[this.count++] = HEX[(c >> 4) & 0xF];
+                    this.buffer[this.count++] = HEX[c & 0xF];
+                } else {
+                    return this.writeUTF8(c, string, index);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Encodes a String without escaping.
+     */
+    private void writeRaw(String string) throws IOException {
+        int length = string.length();
+        this.ensure(length);
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                if (this.count == this.buffer.length) {
+                    this.ensure(length - i);
+                }
+                this.buffer[this.count++] = (byte) c;
+            } else if (this.writeUTF8(c, string, i)) {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Encodes a non-ASCII character. Unpaired surrogates are replaced with '?',
+     * like {@link String#getBytes(java.nio.charset.Charset)} does.
+     *
+     * @return true if the low surrogate at index + 1 was consumed.
+     */
+    private boolean writeUTF8(char c, String string, int index) throws IOException {
+        this.ensure(4);
+        if (c < 0x800) {
+            this.buffer[this.count++] = (byte) (0xC0 | (c >> 6));
+            this.buffer[this.count++] = (byte) (0x80 | (c & 0x3F));
+            return false;
+        }
+        if (!Character.isSurrogate(c)) {
+            this.buffer[this.count++] = (byte) (0xE0 | (c >> 12));
+            this.buffer[this.count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            this.buffer[this.count++] = (byte) (0x80 | (c & 0x3F));
+            return false;
+        }
+        if (Character.isHighSurrogate(c) && index + 1 < string.length()
+                && Character.isLowSurrogate(string.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, string.charAt(index + 1));
+            this.buffer[this.count++] = (byte) (0xF0 | (codePoint >> 18));
+            this.buffer[this.count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            this.buffer[this.count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            this.buffer[this.count++] = (byte) (0x80 | (codePoint & 0x3F));
+            return true;
+        }
+        this.buffer[this.count++] = '?';
+        return false;
+    }
+
+    void write(char c) throws IOException {
+        this.ensure(1);
+        this.buffer[this.count++] = (byte) c;
+    }
+
+    private void write(char first, char second) throws IOException {
+        this.ensure(2);
+        this.buffer[this.count++] = (byte) first;
+        this.buffer[this.count++] = (byte) second;
+    }
+
+    private void write(byte[] bytes, int from, int to) throws IOException {
+        if (this.out != null && to - from > this.buffer.length) {
+            this.drain();
+            this.out.write(bytes, from, to - from);
+            return;
+        }
+        this.ensure(to - from);
+        if (this.count + to - from > this.buffer.length) {
+            this.drain();
+        }
+        System.arraycopy(bytes, from, this.buffer, this.count, to - from);
+        this.count += to - from;
+    }
+
+    void write(byte[] bytes) throws IOException {
+        this.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Makes room for the requested number of bytes, in a stream buffer for at most
+     * {@link #MAX_CHUNK} bytes. Callers writing longer sequences check the capacity
+     * again before each byte.
+     */
+    private void ensure(int bytes) throws IOException {
+        if (this.count + bytes <= this.buffer.length) {
+            return;
+        }
+        if (this.out != null) {
+            if (this.count + Math.min(bytes, MAX_CHUNK) > this.buffer.length) {
+                this.drain();
+            }
+            return;
+        }
+        int capacity = Math.max(this.buffer.length * 2, this.count + bytes);
+        this.buffer = Arrays.copyOf(this.buffer, capacity);
+    }
+
+    private void drain() throws IOException {
+        this.out.write(this.buffer, 0, this.count);
+        this.count = 0;
+    }
+}
@@ -7,12 +7,16 @@ Public Domain.
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.regex.Pattern;
@@ -124,7 +128,12 @@ public class JSONObject {
     /**
      * The map where the JSONObject's properties are kept.
      */
-    private final Map<String, Object> map;
+    private Map<String, Object> map;
+
+    /**
+     * The UTF-8 serialization of a frozen JSONObject, null until {@link #freeze()}.
+     */
+    private byte[] frozen;
 
     /**
      * Retrieves the type of the underlying Map in this class.
@@ -157,13 +166,11 @@ public class JSONObject {
      * Construct an empty JSONObject.
      */
     public JSONObject() {
-        // HashMap is used on purpose to ensure that elements are unordered by
-        // the specification.
-        // JSON tends to be a portable transfer format to allows the container
-        // implementations to rearrange their items for a faster element
-        // retrieval based on associative access.
+        // Elements are unordered by the specification. Small objects keep
+        // their insertion order in a compact array, larger ones are moved
+        // into a HashMap (see CompactMap).
         // Therefore, an implementation mustn't rely on the order of the item.
-        this.map = new HashMap<>();
+        this.map = new CompactMap();
     }
 
     /**
@@ -247,7 +254,7 @@ public class JSONObject {
                 return true;
             }
             default -> {
-                obj = jsonTokener.nextSimpleValue(c);
+                obj = jsonTokener.nextKey(c);
                 key = obj.toString();
             }
         }
@@ -263,12 +270,12 @@ public class JSONObject {
         // Use syntaxError(..) to include error location
         if (key != null) {
             // Check if key exists
-            boolean keyExists = this.opt(key) != null;
+            boolean keyExists = this.has(key);
             if (keyExists && !jsonParserConfiguration.isOverwriteDuplicateKey()) {
                 throw jsonTokener.syntaxError("Duplicate key \"" + key + "\"");
             }
 
-            Object value = jsonTokener.nextValue();
+            Object value = jsonTokener.nextMemberValue();
             // Only add value if non-null
             if (value != null) {
                 this.put(key, value);
@@ -381,9 +388,9 @@ public class JSONObject {
           throw new IllegalStateException("JSONObject has reached recursion depth limit of " + jsonParserConfiguration.getMaxNestingDepth());
         }
         if (m == null) {
-            this.map = new HashMap<>();
+            this.map = new CompactMap();
         } else {
-            this.map = new HashMap<>(m.size());
+            this.map = new CompactMap(m.size());
         	for (final Entry<?, ?> e : m.entrySet()) {
         	    if(e.getKey() == null) {
         	        throw new NullPointerException("Null key.");
@@ -499,6 +506,37 @@ public class JSONObject {
         this(new JSONTokener(source, jsonParserConfiguration), jsonParserConfiguration);
     }
 
+    /**
+     * Construct a JSONObject from UTF-8 encoded JSON text, parsed with a
+     * {@link JSONByteTokener} without decoding the text into a String first.
+     *
+     * @param utf8
+     *            The remaining bytes of the buffer, beginning with <code>{</code>.
+     *            The buffer's position is not changed.
+     * @exception IllegalArgumentException
+     *                If there is a syntax error in the source or a
+     *                duplicated key.
+     */
+    public JSONObject(ByteBuffer utf8) {
+        this(utf8, new JSONParserConfiguration());
+    }
+
+    /**
+     * Construct a JSONObject from UTF-8 encoded JSON text with custom json parse configurations.
+     *
+     * @param utf8
+     *            The remaining bytes of the buffer, beginning with <code>{</code>.
+     *            The buffer's position is not changed.
+     * @param jsonParserConfiguration
+     *            Variable to pass parser custom configuration for json parsing.
+     * @exception IllegalArgumentException
+     *                If there is a syntax error in the source or a
+     *                duplicated key.
+     */
+    public JSONObject(ByteBuffer utf8, JSONParserConfiguration jsonParserConfiguration) {
+        this(new JSONByteTokener(utf8, jsonParserConfiguration), jsonParserConfiguration);
+    }
+
     /**
      * Construct a JSONObject from a ResourceBundle.
      *
@@ -550,7 +588,7 @@ public class JSONObject {
      * @param initialCapacity initial capacity of the internal map.
      */
     protected JSONObject(int initialCapacity){
-        this.map = new HashMap<>(initialCapacity);
+        this.map = new CompactMap(initialCapacity);
     }
 
     /**
@@ -1041,7 +1079,8 @@ public class JSONObject {
 
     /**
      * Get a set of entries of the JSONObject. These are raw values and may not
-     * match what is returned by the JSONObject get* and opt* functions. Modifying
+     * match what is returned by the JSONObject get* and opt* functions, except
+     * for lazily parsed values, which are parsed when accessed. Modifying
      * the returned EntrySet or the Entry objects contained therein will modify the
      * backing JSONObject. This does not return a clone or a read-only view.
      *
@@ -1052,9 +1091,75 @@ public class JSONObject {
      * @return An Entry Set
      */
     protected Set<Entry<String, Object>> entrySet() {
+        return new ParsedEntrySet(this.map.entrySet());
+    }
+
+    /**
+     * @return the entries including unparsed {@link JSONSlice} values, for serialization.
+     */
+    Set<Entry<String, Object>> rawEntrySet() {
         return this.map.entrySet();
     }
 
+    /**
+     * A view of the entries which resolves unparsed slices, other entries are passed through.
+     */
+    private static final class ParsedEntrySet extends AbstractSet<Entry<String, Object>> {
+
+        private final Set<Entry<String, Object>> entries;
+
+        ParsedEntrySet(Set<Entry<String, Object>> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            Iterator<Entry<String, Object>> iterator = this.entries.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Entry<String, Object> next() {
+                    Entry<String, Object> entry = iterator.next();
+                    return entry.getValue() instanceof JSONSlice ? new ParsedEntry(entry) : entry;
+                }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return this.entries.size();
+        }
+    }
+
+    private record ParsedEntry(Entry<String, Object> entry) implements Entry<String, Object> {
+
+        @Override
+        public String getKey() {
+            return this.entry.getKey();
+        }
+
+        @Override
+        public Object getValue() {
+            Object value = this.entry.getValue();
+            return value instanceof JSONSlice slice ? slice.value() : value;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object previous = this.entry.setValue(value);
+            return previous instanceof JSONSlice slice ? slice.value() : previous;
+        }
+    }
+
     /**
      * Get the number of keys stored in the JSONObject.
      *
@@ -1081,6 +1186,57 @@ public class JSONObject {
         return this.map.isEmpty();
     }
 
+    /**
+     * Makes this JSONObject and the JSONObjects and JSONArrays it contains
+     * immutable and serializes it once. {@link #toString()},
+     * {@link #write(Appendable)} and {@link JSONByteWriter} emit the cached
+     * UTF-8 bytes instead of walking the values again. Unparsed values of a
+     * lazily parsed JSONObject are parsed first.
+     * <p>
+     * Changing a frozen JSONObject throws an UnsupportedOperationException.
+     * Freeze a JSONObject before sharing it between threads.
+     *
+     * @return this.
+     * @throws IllegalStateException if a value cannot be serialized.
+     */
+    public JSONObject freeze() {
+        if (this.frozen == null) {
+            for (String key : this.map.keySet().toArray(new String[0])) {
+                Object value = this.map.get(key);
+                if (value instanceof JSONSlice slice) {
+                    value = slice.value();
+                    this.map.put(key, value);
+                }
+                freeze(value);
+            }
+            this.map = Collections.unmodifiableMap(this.map);
+            this.frozen = new JSONByteWriter(Math.max(this.map.size() * 16, 16)).value(this).toByteArray();
+        }
+        return this;
+    }
+
+    static void freeze(Object value) {
+        if (value instanceof JSONObject object) {
+            object.freeze();
+        } else if (value instanceof JSONArray array) {
+            array.freeze();
+        }
+    }
+
+    /**
+     * @return true if this JSONObject was frozen with {@link #freeze()}.
+     */
+    public boolean isFrozen() {
+        return this.frozen != null;
+    }
+
+    /**
+     * @return the serialized form of a frozen JSONObject, otherwise null.
+     */
+    byte[] frozen() {
+        return this.frozen;
+    }
+
     /**
      * Produce a JSONArray containing the names of the elements of this
      * JSONObject.
@@ -1133,7 +1289,15 @@ public class JSONObject {
      * @return An object which is the value, or null if there is no value.
      */
     public Object opt(String key) {
-        return key == null ? null : this.map.get(key);
+        if (key == null) {
+            return null;
+        }
+        Object value = this.map.get(key);
+        if (value instanceof JSONSlice slice) {
+            // parsed once by the slice, reads never modify the map
+            return slice.value();
+        }
+        return value;
     }
 
     /**
@@ -1797,57 +1961,94 @@ public class JSONObject {
      * @param jsonParserConfiguration json parser settings
      */
     private void populateMap(Object bean, Set<Object> objectsRecord, JSONParserConfiguration jsonParserConfiguration) {
-        Class<?> klass = bean.getClass();
+        for (final BeanProperty property : BEAN_PROPERTIES.get(bean.getClass())) {
+            processProperty(bean, objectsRecord, jsonParserConfiguration, property);
+        }
+    }
 
+    /**
+     * A getter resolved by {@link #beanProperties(Class)}.
+     *
+     * @param key the JSON key
+     * @param getter the getter, adapted to <code>(Object)Object</code>
+     */
+    record BeanProperty(String key, MethodHandle getter) {}
+
+    /**
+     * The getters of each class, scanned once per class instead of once per bean.
+     */
+    private static final ClassValue<BeanProperty[]> BEAN_PROPERTIES = new ClassValue<>() {
+        @Override
+        protected BeanProperty[] computeValue(Class<?> klass) {
+            return beanProperties(klass);
+        }
+    };
+
+    /**
+     * Finds the getters (and record accessors) of a class. Methods which are not
+     * accessible are skipped, like inaccessible methods were ignored on invocation.
+     *
+     * @param klass the bean class
+     * @return the properties in the order of {@link Class#getMethods()}
+     */
+    private static BeanProperty[] beanProperties(Class<?> klass) {
         // If klass is a System class then set includeSuperClass to false.
-        
+
         // Check if this is a Java record type
         boolean isRecord = isRecordType(klass);
-
-        Method[] methods = getMethods(klass);
-        for (final Method method : methods) {
+        var lookup = MethodHandles.lookup();
+        var properties = new ArrayList<BeanProperty>();
+        for (final Method method : getMethods(klass)) {
             if (isValidMethod(method)) {
                 final String key = getKeyNameFromMethod(method, isRecord);
                 if (key != null && !key.isEmpty()) {
-                    processMethod(bean, objectsRecord, jsonParserConfiguration, method, key);
+                    try {
+                        var getter = lookup.unreflect(method).asType(MethodType.methodType(Object.class, Object.class));
+                        properties.add(new BeanProperty(key, getter));
+                    } catch (IllegalAccessException ignore) {
+                        // ignore exception
+                    }
                 }
             }
         }
+        return properties.toArray(BeanProperty[]::new);
     }
 
     /**
-     * Processes method into json object entry if appropriate
-     * @param bean object being processed (owns the method)
+     * Processes a property into a json object entry if appropriate
+     * @param bean object being processed (owns the property)
      * @param objectsRecord set of all objects for this method
      * @param jsonParserConfiguration json parser settings
-     * @param method method being processed
-     * @param key name of the method
+     * @param property property being processed
      */
-    private void processMethod(Object bean, Set<Object> objectsRecord, JSONParserConfiguration jsonParserConfiguration,
-                               Method method, String key) {
+    private void processProperty(Object bean, Set<Object> objectsRecord, JSONParserConfiguration jsonParserConfiguration,
+                                 BeanProperty property) {
+        final Object result;
         try {
-            final Object result = method.invoke(bean);
-            if (result != null || jsonParserConfiguration.isUseNativeNulls()) {
-                // check cyclic dependency and throw error if needed
-                // the wrap and populateMap combination method is
-                // itself DFS recursive
-                if (objectsRecord.contains(result)) {
-                    throw recursivelyDefinedObjectException(key);
-                }
+            result = property.getter().invokeExact(bean);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable ignore) {
+            // a failing getter is ignored
+            return;
+        }
+        if (result != null || jsonParserConfiguration.isUseNativeNulls()) {
+            final String key = property.key();
+            // check cyclic dependency and throw error if needed
+            // the wrap and populateMap combination method is
+            // itself DFS recursive
+            if (objectsRecord.contains(result)) {
+                throw recursivelyDefinedObjectException(key);
+            }
 
-                objectsRecord.add(result);
+            objectsRecord.add(result);
 
-                testValidity(result);
-                this.map.put(key, wrap(result, objectsRecord));
+            testValidity(result);
+            this.map.put(key, wrap(result, objectsRecord));
 
-                objectsRecord.remove(result);
+            objectsRecord.remove(result);
 
-                closeClosable(result);
-            }
-        } catch (IllegalAccessException ignore) {
-            // ignore exception
-        } catch (InvocationTargetException ignore) {
-            // ignore exception
+            closeClosable(result);
         }
     }
 
@@ -2269,7 +2470,8 @@ public class JSONObject {
      *         no value.
      */
     public Object remove(String key) {
-        return this.map.remove(key);
+        Object removed = this.map.remove(key);
+        return removed instanceof JSONSlice slice ? slice.value() : removed;
     }
 
     /**
@@ -2295,9 +2497,9 @@ public class JSONObject {
     }
 
     private boolean checkSimilarEntries(JSONObject other) {
-        for (final Entry<String,?> entry : this.entrySet()) {
+        for (final Entry<String,?> entry : this.rawEntrySet()) {
             String name = entry.getKey();
-            Object valueThis = entry.getValue();
+            Object valueThis = this.opt(name);
             Object valueOther = other.get(name);
             if(valueThis == valueOther) {
                 continue;
@@ -2449,6 +2651,11 @@ public class JSONObject {
      *      caller should catch this and wrap it in a {@link IllegalArgumentException} if applicable.
      */
     protected static Number stringToNumber(final String val) throws NumberFormatException {
+        // plain numbers within the range of a long are scanned without BigInteger / BigDecimal parsing
+        Number scanned = JSONTokener.scanNumber(val, 0, val.length());
+        if (scanned != null) {
+            return scanned;
+        }
         char initial = val.charAt(0);
         if ((initial >= '0' && initial <= '9') || initial == '-') {
             // decimal representation
@@ -2613,6 +2820,9 @@ public class JSONObject {
      *             If the object contains an invalid number.
      */
     public String toString(int indentFactor) {
+        if (this.frozen != null && indentFactor <= 0) {
+            return new String(this.frozen, StandardCharsets.UTF_8);
+        }
         // 6 characters are the minimum to serialise a key value pair e.g.: "k":1,
         // and we don't want to oversize the initial capacity
         int initialSize = map.size() * 6;
@@ -2754,6 +2964,10 @@ public class JSONObject {
     @SuppressWarnings("resource")
     static final Appendable writeValue(Appendable writer, Object value,
             int indentFactor, int indent) throws IOException {
+        if (value instanceof JSONSlice slice && (indentFactor > 0 || slice.parsed() != null)) {
+            // unparsed slices are written verbatim, unless they have to be indented
+            value = slice.value();
+        }
         if (value == null || value.equals(null)) {
             writer.append("null");
         } else if (value instanceof JSONString) {
@@ -2857,12 +3071,15 @@ public class JSONObject {
     @SuppressWarnings("resource")
     public Appendable write(Appendable writer, int indentFactor, int indent) {
         try {
+            if (this.frozen != null && indentFactor <= 0) {
+                return writer.append(new String(this.frozen, StandardCharsets.UTF_8));
+            }
             boolean needsComma = false;
             final int length = this.length();
             writer.append('{');
 
             if (length == 1) {
-            	final Entry<String,?> entry = this.entrySet().iterator().next();
+            	final Entry<String,?> entry = this.rawEntrySet().iterator().next();
                 final String key = entry.getKey();
                 writer.append(quote(key));
                 writer.append(':');
@@ -2896,7 +3113,7 @@ public class JSONObject {
      */
     private void writeContent(Appendable writer, int indentFactor, int indent, boolean needsComma) throws IOException {
         final int newIndent = indent + indentFactor;
-        for (final Entry<String,?> entry : this.entrySet()) {
+        for (final Entry<String,?> entry : this.rawEntrySet()) {
             if (needsComma) {
                 writer.append(',');
             }
@@ -2954,18 +3171,16 @@ public class JSONObject {
      */
     public Map<String, Object> toMap() {
         Map<String, Object> results = new HashMap<>();
-        for (Entry<String, Object> entry : this.entrySet()) {
-            Object value;
-            if (entry.getValue() == null || NULL.equals(entry.getValue())) {
+        for (String key : this.keySet()) {
+            Object value = this.opt(key);
+            if (value == null || NULL.equals(value)) {
                 value = null;
-            } else if (entry.getValue() instanceof JSONObject jo) {
+            } else if (value instanceof JSONObject jo) {
                 value = jo.toMap();
-            } else if (entry.getValue() instanceof JSONArray ja) {
+            } else if (value instanceof JSONArray ja) {
                 value = ja.toList();
-            } else {
-                value = entry.getValue();
             }
-            results.put(entry.getKey(), value);
+            results.put(key, value);
         }
         return results;
     }
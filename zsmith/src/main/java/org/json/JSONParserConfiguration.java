@@ -41,6 +41,16 @@ public class JSONParserConfiguration {
      */
     boolean strictMode;
 
+    /**
+     * Canonicalizes the keys of parsed objects, null if keys are allocated with each parse.
+     */
+    KeyTable keyTable;
+
+    /**
+     * Keep nested objects and arrays as unparsed slices until they are accessed.
+     */
+    boolean lazyParsing;
+
     /**
      * Configuration with the default values.
      */
@@ -62,6 +72,8 @@ public class JSONParserConfiguration {
         clone.overwriteDuplicateKey = this.overwriteDuplicateKey;
         clone.useNativeNulls = this.useNativeNulls;
         clone.strictMode = this.strictMode;
+        clone.keyTable = this.keyTable;
+        clone.lazyParsing = this.lazyParsing;
         return clone;
     }
 
@@ -178,6 +190,36 @@ public class JSONParserConfiguration {
         return clone;
     }
 
+    /**
+     * Sets a table of canonical key instances. Parsed keys found in the table are
+     * not allocated again, new keys are added while the table has room. The table
+     * can be shared between configurations and threads.
+     *
+     * @param keyTable the table, null to allocate each key.
+     * @return The existing configuration will not be modified. A new configuration is returned.
+     */
+    public JSONParserConfiguration withKeyTable(KeyTable keyTable) {
+        var clone = this.clone();
+        clone.keyTable = keyTable;
+        return clone;
+    }
+
+    /**
+     * Controls whether nested objects and arrays of a JSONObject are parsed on first access.
+     * When parsing from bytes with a {@link JSONByteTokener}, such values are only scanned for
+     * their end and kept as slices of the source. The first {@link JSONObject#opt(String)} parses
+     * the slice, syntax errors within it are reported then. Untouched slices are serialized verbatim.
+     * Other tokeners ignore this setting.
+     *
+     * @param lazyParsing defines if nested values are parsed on first access.
+     * @return The existing configuration will not be modified. A new configuration is returned.
+     */
+    public JSONParserConfiguration withLazyParsing(boolean lazyParsing) {
+        var clone = this.clone();
+        clone.lazyParsing = lazyParsing;
+        return clone;
+    }
+
     /**
      * The parser's behavior when meeting duplicate keys, controls whether the parser should
      * overwrite duplicate keys or not.
@@ -208,4 +250,18 @@ public class JSONParserConfiguration {
     public boolean isStrictMode() {
         return this.strictMode;
     }
+
+    /**
+     * @return the table canonicalizing parsed keys, or null.
+     */
+    public KeyTable getKeyTable() {
+        return this.keyTable;
+    }
+
+    /**
+     * @return true if nested values of JSONObjects are parsed on first access.
+     */
+    public boolean isLazyParsing() {
+        return this.lazyParsing;
+    }
 }
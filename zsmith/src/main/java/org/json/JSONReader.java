@@ -0,0 +1,317 @@
+package org.json;
+
+/*
+Public Domain.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A JSONReader is a pull parser on top of a {@link JSONTokener}. Instead of
+ * materializing a whole document as <code>JSONObject</code> and
+ * <code>JSONArray</code> trees, it reports the document as a sequence of
+ * events, so large documents can be processed from an <code>InputStream</code>
+ * while only keeping the parts of interest.
+ *
+ * <pre>
+ * try (var reader = new JSONReader(inputStream)) {
+ *     reader.next(); // START_OBJECT
+ *     while (reader.next() == JSONReader.Event.FIELD_NAME) {
+ *         if ("content".equals(reader.getString())) {
+ *             reader.next();
+ *             var content = (JSONArray) reader.readValue();
+ *         } else {
+ *             reader.next();
+ *             reader.skipChildren();
+ *         }
+ *     }
+ * }
+ * </pre>
+ *
+ * The reader accepts the same lenient syntax as the JSONObject and JSONArray
+ * constructors, e.g. single quoted strings and trailing commas.
+ */
+public class JSONReader implements Closeable {
+
+    /**
+     * Parser events.
+     */
+    public enum Event {
+        START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, FIELD_NAME,
+        VALUE_STRING, VALUE_NUMBER, VALUE_TRUE, VALUE_FALSE, VALUE_NULL
+    }
+
+    /** the underlying tokener. */
+    private final JSONTokener tokener;
+    /** '{' or '[' for each open scope. */
+    private char[] scopes = new char[16];
+    /** whether the scope at the same depth already contains an element. */
+    private boolean[] hasElements = new boolean[16];
+    /** number of open scopes. */
+    private int depth;
+    /** a FIELD_NAME was reported, the value follows. */
+    private boolean expectingValue;
+    /** the top level value was read completely. */
+    private boolean done;
+    /** the last reported event. */
+    private Event event;
+    /** field name or scalar value of the last event. */
+    private Object value;
+
+    /**
+     * Construct a JSONReader from a JSONTokener.
+     *
+     * @param tokener the source.
+     */
+    public JSONReader(JSONTokener tokener) {
+        this.tokener = tokener;
+    }
+
+    /**
+     * Construct a JSONReader from a UTF-8 encoded InputStream.
+     *
+     * @param inputStream the source.
+     */
+    public JSONReader(InputStream inputStream) {
+        this(new JSONTokener(inputStream));
+    }
+
+    /**
+     * Construct a JSONReader from a Reader.
+     *
+     * @param reader the source.
+     */
+    public JSONReader(Reader reader) {
+        this(new JSONTokener(reader));
+    }
+
+    /**
+     * Construct a JSONReader from a string.
+     *
+     * @param source the source.
+     */
+    public JSONReader(String source) {
+        this(new JSONTokener(source));
+    }
+
+    /**
+     * @return true if the document contains more events.
+     */
+    public boolean hasNext() {
+        return !this.done;
+    }
+
+    /**
+     * Advance to the next event.
+     *
+     * @return the next event.
+     * @throws NoSuchElementException if the document was read completely.
+     * @throws IllegalArgumentException if there is a syntax error.
+     */
+    public Event next() {
+        if (this.done) {
+            throw new NoSuchElementException("The JSON document was read completely");
+        }
+        this.value = null;
+        if (this.depth == 0) {
+            return this.event = this.value(this.tokener.nextClean());
+        }
+        if (this.scopes[this.depth - 1] == '{') {
+            return this.event = this.nextInObject();
+        }
+        return this.event = this.nextInArray();
+    }
+
+    private Event nextInObject() {
+        if (this.expectingValue) {
+            this.expectingValue = false;
+            return this.value(this.tokener.nextClean());
+        }
+        char c = this.tokener.nextClean();
+        if (c == '}') {
+            return this.close(Event.END_OBJECT);
+        }
+        if (this.hasElements[this.depth - 1]) {
+            if (c != ',' && c != ';') {
+                throw this.tokener.syntaxError("Expected a ',' or '}'");
+            }
+            c = this.tokener.nextClean();
+            if (c == '}') {
+                return this.close(Event.END_OBJECT);
+            }
+        }
+        if (c == 0) {
+            throw this.tokener.syntaxError("A JSONObject text must end with '}'");
+        }
+        this.hasElements[this.depth - 1] = true;
+        this.value = this.tokener.nextKey(c).toString();
+        if (this.tokener.nextClean() != ':') {
+            throw this.tokener.syntaxError("Expected a ':' after a key");
+        }
+        this.expectingValue = true;
+        return Event.FIELD_NAME;
+    }
+
+    private Event nextInArray() {
+        char c = this.tokener.nextClean();
+        if (c == ']') {
+            return this.close(Event.END_ARRAY);
+        }
+        if (this.hasElements[this.depth - 1]) {
+            if (c != ',') {
+                throw this.tokener.syntaxError("Expected a ',' or ']'");
+            }
+            c = this.tokener.nextClean();
+            if (c == ']') {
+                return this.close(Event.END_ARRAY);
+            }
+        }
+        this.hasElements[this.depth - 1] = true;
+        return this.value(c);
+    }
+
+    private Event value(char c) {
+        switch (c) {
+            case 0 -> throw this.tokener.syntaxError("Missing value");
+            case '{' -> {
+                return this.open('{', Event.START_OBJECT);
+            }
+            case '[' -> {
+                return this.open('[', Event.START_ARRAY);
+            }
+            default -> {
+                // scalar
+            }
+        }
+        boolean quoted = c == '"' || c == '\'';
+        this.value = this.tokener.nextSimpleValue(c);
+        this.done = this.depth == 0;
+        if (quoted || this.value instanceof String) {
+            return Event.VALUE_STRING;
+        }
+        if (this.value instanceof Boolean b) {
+            return b ? Event.VALUE_TRUE : Event.VALUE_FALSE;
+        }
+        if (this.value == JSONObject.NULL) {
+            return Event.VALUE_NULL;
+        }
+        return Event.VALUE_NUMBER;
+    }
+
+    private Event open(char scope, Event startEvent) {
+        if (this.depth == this.scopes.length) {
+            this.scopes = Arrays.copyOf(this.scopes, this.depth * 2);
+            this.hasElements = Arrays.copyOf(this.hasElements, this.depth * 2);
+        }
+        this.scopes[this.depth] = scope;
+        this.hasElements[this.depth] = false;
+        this.depth++;
+        return startEvent;
+    }
+
+    private Event close(Event endEvent) {
+        this.depth--;
+        this.done = this.depth == 0;
+        return endEvent;
+    }
+
+    /**
+     * @return the last reported event, or null if next() was not called yet.
+     */
+    public Event currentEvent() {
+        return this.event;
+    }
+
+    /**
+     * @return the field name for FIELD_NAME, the text for VALUE_STRING, or the
+     * textual form of any other scalar.
+     */
+    public String getString() {
+        if (this.value == null) {
+            throw new IllegalStateException("No field name or value at " + this.event);
+        }
+        return this.value.toString();
+    }
+
+    /**
+     * @return the number of a VALUE_NUMBER event.
+     */
+    public Number getNumber() {
+        if (this.value instanceof Number number) {
+            return number;
+        }
+        throw new IllegalStateException("No number at " + this.event);
+    }
+
+    /**
+     * @return the value of a VALUE_TRUE or VALUE_FALSE event.
+     */
+    public boolean getBoolean() {
+        if (this.value instanceof Boolean b) {
+            return b;
+        }
+        throw new IllegalStateException("No boolean at " + this.event);
+    }
+
+    /**
+     * If the current event is START_OBJECT or START_ARRAY, skips to the matching
+     * END_OBJECT or END_ARRAY. Does nothing for any other event.
+     */
+    public void skipChildren() {
+        if (this.event != Event.START_OBJECT && this.event != Event.START_ARRAY) {
+            return;
+        }
+        int target = this.depth - 1;
+        while (this.depth > target) {
+            this.next();
+        }
+    }
+
+    /**
+     * Materializes the value starting at the current event: a JSONObject for
+     * START_OBJECT, a JSONArray for START_ARRAY, or the scalar value
+     * (String, Number, Boolean or JSONObject.NULL).
+     *
+     * @return the value, the reader is positioned at its last event.
+     */
+    public Object readValue() {
+        if (this.event == null) {
+            this.next();
+        }
+        return switch (this.event) {
+            case START_OBJECT -> {
+                var object = new JSONObject();
+                while (this.next() == Event.FIELD_NAME) {
+                    var key = this.getString();
+                    this.next();
+                    object.put(key, this.readValue());
+                }
+                yield object;
+            }
+            case START_ARRAY -> {
+                var array = new JSONArray();
+                while (this.next() != Event.END_ARRAY) {
+                    array.put(this.readValue());
+                }
+                yield array;
+            }
+            case FIELD_NAME, END_OBJECT, END_ARRAY -> throw new IllegalStateException("No value at " + this.event);
+            default -> this.value;
+        };
+    }
+
+    /**
+     * Closes the underlying tokener.
+     *
+     * @throws IOException If an I/O error occurs while closing the reader.
+     */
+    @Override
+    public void close() throws IOException {
+        this.tokener.close();
+    }
+}
@@ -0,0 +1,76 @@
+package org.json;
+
+/*
+Public Domain.
+ */
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An unparsed object or array value, kept as a range of the UTF-8 source by
+ * a lazily parsing {@link JSONByteTokener}. The slice is parsed once on first
+ * access and keeps the parsed value, so concurrent readers of the owning
+ * JSONObject never modify its map. Serialization writes the source verbatim
+ * until the value was parsed, afterwards the (possibly modified) value.
+ */
+final class JSONSlice implements JSONString {
+
+    final byte[] bytes;
+    final int from;
+    final int to;
+    final JSONParserConfiguration jsonParserConfiguration;
+    private volatile Object value;
+
+    JSONSlice(byte[] bytes, int from, int to, JSONParserConfiguration jsonParserConfiguration) {
+        this.bytes = bytes;
+        this.from = from;
+        this.to = to;
+        this.jsonParserConfiguration = jsonParserConfiguration;
+    }
+
+    /**
+     * @return the JSONObject or JSONArray, nested values are parsed lazily again.
+     * @throws IllegalArgumentException if the slice contains a syntax error.
+     */
+    Object parse() {
+        return new JSONByteTokener(this.bytes, this.from, this.to - this.from, this.jsonParserConfiguration).nextValue();
+    }
+
+    /**
+     * @return the parsed JSONObject or JSONArray, parsed once by the first caller.
+     * @throws IllegalArgumentException if the slice contains a syntax error.
+     */
+    Object value() {
+        Object parsed = this.value;
+        if (parsed == null) {
+            synchronized (this) {
+                parsed = this.value;
+                if (parsed == null) {
+                    parsed = this.value = this.parse();
+                }
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * @return the parsed value, or null if the slice was not accessed yet.
+     */
+    Object parsed() {
+        return this.value;
+    }
+
+    @Override
+    public String toJSONString() {
+        Object parsed = this.value;
+        if (parsed != null) {
+            return parsed.toString();
+        }
+        return new String(this.bytes, this.from, this.to - this.from, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return this.toJSONString();
+    }
+}
@@ -1,7 +1,9 @@
 package org.json;
 
 import java.io.*;
+import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
+import java.util.function.IntUnaryOperator;
 
 /*
 Public Domain.
@@ -65,6 +67,24 @@ public class JSONTokener {
         this.line = 1;
     }
 
+    /**
+     * Construct a JSONTokener without a Reader, for subclasses providing their own source.
+     * Subclasses must override all methods accessing the reader.
+     *
+     * @param jsonParserConfiguration A JSONParserConfiguration instance that controls the behavior of the parser.
+     */
+    protected JSONTokener(JSONParserConfiguration jsonParserConfiguration) {
+        this.jsonParserConfiguration = jsonParserConfiguration;
+        this.reader = null;
+        this.eof = false;
+        this.usePrevious = false;
+        this.previous = 0;
+        this.index = 0;
+        this.character = 1;
+        this.characterPreviousLine = 0;
+        this.line = 1;
+    }
+
     /**
      * Construct a JSONTokener from an InputStream. The caller must close the input stream.
      * @param inputStream The source.
@@ -329,8 +349,16 @@ public class JSONTokener {
      * @return      A String.
      */
     public String nextString(char quote) {
+        return this.nextString(quote, new StringBuilder()).toString();
+    }
+
+    /**
+     * Appends the characters up to the next close quote character.
+     *
+     * @return the passed StringBuilder.
+     */
+    private StringBuilder nextString(char quote, StringBuilder sb) {
         char c;
-        var sb = new StringBuilder();
         for (;;) {
             c = this.next();
             switch (c) {
@@ -359,7 +387,7 @@ public class JSONTokener {
                 }
                 default -> {
                     if (c == quote) {
-                        return sb.toString();
+                        return sb;
                     }
                     sb.append(c);
                 }
@@ -367,6 +395,28 @@ public class JSONTokener {
         }
     }
 
+    /**
+     * Parse the key of an object member. Quoted keys are canonicalized by the
+     * {@link KeyTable} of the configuration, if there is one.
+     *
+     * @param c the first character of the key.
+     * @return the key, a String unless it is an unquoted number, boolean or null.
+     */
+    Object nextKey(char c) {
+        KeyTable keyTable = jsonParserConfiguration == null ? null : jsonParserConfiguration.getKeyTable();
+        if (keyTable == null || (c != '"' && c != '\'') || (c == '\'' && jsonParserConfiguration.isStrictMode())) {
+            return this.nextSimpleValue(c);
+        }
+        return this.nextQuotedKey(c, keyTable);
+    }
+
+    /**
+     * @return the canonical instance of the quoted key.
+     */
+    String nextQuotedKey(char quote, KeyTable keyTable) {
+        return keyTable.key(this.nextString(quote, new StringBuilder()));
+    }
+
 
     /**
      * Get the text up but not including the specified character or the
@@ -444,9 +494,17 @@ public class JSONTokener {
         return nextSimpleValue(c);
     }
 
-    Object nextSimpleValue(char c) {
-        String string;
+    /**
+     * Get the value of an object member. Tokeners supporting lazy parsing
+     * return nested objects and arrays as {@link JSONSlice}.
+     *
+     * @return the value, or a JSONSlice.
+     */
+    Object nextMemberValue() {
+        return this.nextValue();
+    }
 
+    Object nextSimpleValue(char c) {
         // Strict mode only allows strings with explicit double quotes
         if (jsonParserConfiguration != null &&
                 jsonParserConfiguration.isStrictMode() &&
@@ -476,11 +534,125 @@ public class JSONTokener {
             sb.append(c);
             c = this.next();
         }
-        if (!this.eof) {
+        if (!this.end()) {
             this.back();
         }
 
-        string = sb.toString().trim();
+        Number number = scanNumber(sb, 0, sb.length());
+        if (number != null) {
+            return number;
+        }
+        return this.simpleValue(sb.toString().trim());
+    }
+
+    /** longer significands do not fit into a long and are left to BigInteger / BigDecimal. */
+    static final int MAX_SCANNED_DIGITS = 18;
+    /** longer exponents are left to BigDecimal. */
+    static final int MAX_SCANNED_EXPONENT_DIGITS = 4;
+
+    /**
+     * Scans a strict JSON number from the characters without creating an
+     * intermediate String. The result has the same type and value
+     * {@link JSONObject#stringToNumber(String)} returns.
+     *
+     * @param chars the characters.
+     * @param from  index of the first character.
+     * @param to    index after the last character.
+     * @return the Integer, Long, BigDecimal or -0.0 Double, or null if the
+     *  characters are not a plain JSON number or exceed the scanned range.
+     */
+    static Number scanNumber(CharSequence chars, int from, int to) {
+        return scanNumber(chars::charAt, from, to);
+    }
+
+    /**
+     * Shared by the char and byte tokeners, the characters are read through an accessor.
+     *
+     * @param chars returns the character at an index.
+     */
+    static Number scanNumber(IntUnaryOperator chars, int from, int to) {
+        int i = from;
+        boolean negative = i < to && chars.applyAsInt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        int integerStart = i;
+        long significand = 0;
+        int c;
+        while (i < to && (c = chars.applyAsInt(i)) >= '0' && c <= '9') {
+            significand = significand * 10 + (c - '0');
+            i++;
+        }
+        int integerDigits = i - integerStart;
+        if (integerDigits == 0 || (integerDigits > 1 && chars.applyAsInt(integerStart) == '0')) {
+            return null;
+        }
+        int fractionDigits = 0;
+        if (i < to && chars.applyAsInt(i) == '.') {
+            int fractionStart = ++i;
+            while (i < to && (c = chars.applyAsInt(i)) >= '0' && c <= '9') {
+                significand = significand * 10 + (c - '0');
+                i++;
+            }
+            fractionDigits = i - fractionStart;
+            if (fractionDigits == 0) {
+                return null;
+            }
+        }
+        boolean decimal = fractionDigits > 0;
+        int exponent = 0;
+        if (i < to && ((c = chars.applyAsInt(i)) == 'e' || c == 'E')) {
+            decimal = true;
+            boolean negativeExponent = ++i < to && chars.applyAsInt(i) == '-';
+            if (i < to && (negativeExponent || chars.applyAsInt(i) == '+')) {
+                i++;
+            }
+            int exponentStart = i;
+            while (i < to && (c = chars.applyAsInt(i)) >= '0' && c <= '9') {
+                exponent = exponent * 10 + (c - '0');
+                i++;
+            }
+            int exponentDigits = i - exponentStart;
+            if (exponentDigits == 0 || exponentDigits > MAX_SCANNED_EXPONENT_DIGITS) {
+                return null;
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+        if (i != to || integerDigits + fractionDigits > MAX_SCANNED_DIGITS) {
+            return null;
+        }
+        return number(negative, significand, fractionDigits - exponent, decimal);
+    }
+
+    /**
+     * Narrows a scanned number like {@link JSONObject#stringToNumber(String)}:
+     * integers to Integer or Long, decimals to a BigDecimal keeping the
+     * original scale, and negative zero to a Double.
+     */
+    static Number number(boolean negative, long significand, int scale, boolean decimal) {
+        if (negative && significand == 0) {
+            // "-0" is decimal notation, BigDecimal has no negative zero
+            return Double.valueOf(-0.0);
+        }
+        long value = negative ? -significand : significand;
+        if (decimal) {
+            return BigDecimal.valueOf(value, scale);
+        }
+        if (value == (int) value) {
+            return Integer.valueOf((int) value);
+        }
+        return Long.valueOf(value);
+    }
+
+    /**
+     * Converts an unquoted token into a value, applying the strict mode checks.
+     *
+     * @param string the trimmed, unquoted token.
+     * @return A Boolean, Number, String or JSONObject.NULL.
+     */
+    Object simpleValue(String string) {
         if ("".equals(string)) {
             throw this.syntaxError("Missing value");
         }  else if (jsonParserConfiguration != null &&
@@ -0,0 +1,126 @@
+package org.json;
+
+/*
+Public Domain.
+ */
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A KeyTable canonicalizes the keys of parsed JSON objects, so documents with
+ * the same structure share one String instance per key instead of allocating
+ * fresh Strings with each parse. The hash is computed over the parsed
+ * characters (or ASCII bytes) and a String is only created for keys which are
+ * not in the table yet.
+ * <p>
+ * The table is seeded with the expected keys and learns further keys until
+ * its slots are taken, keys which do not fit are returned uninterned. The
+ * table is safe to share between parsers running concurrently: a lost
+ * update only means a key is allocated once more.
+ *
+ * <pre>
+ * var configuration = new JSONParserConfiguration()
+ *     .withKeyTable(new KeyTable(256, "type", "text", "id", "name", "input"));
+ * new JSONObject(source, configuration);
+ * </pre>
+ */
+public final class KeyTable {
+
+    /** longer keys are not interned. */
+    static final int MAX_KEY_LENGTH = 64;
+    /** number of slots searched for a key. */
+    static final int MAX_PROBES = 4;
+
+    private final String[] table;
+    private final int mask;
+
+    /**
+     * Construct a KeyTable.
+     *
+     * @param capacity the number of keys the table is expected to hold.
+     * @param keys     keys added to the table up front.
+     */
+    public KeyTable(int capacity, String... keys) {
+        int size = Integer.highestOneBit(Math.max(8, capacity * 2 - 1)) << 1;
+        this.table = new String[size];
+        this.mask = size - 1;
+        for (String key : keys) {
+            this.intern(key);
+        }
+    }
+
+    /**
+     * @param key a key.
+     * @return the canonical instance of the key.
+     */
+    public String intern(String key) {
+        return this.key(key);
+    }
+
+    /**
+     * @param chars the characters of a parsed key.
+     * @return the canonical instance, or a new String if the table has no room for the key.
+     */
+    String key(CharSequence chars) {
+        int length = chars.length();
+        if (length > MAX_KEY_LENGTH) {
+            return chars.toString();
+        }
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int slot = (hash + probe) & this.mask;
+            String candidate = this.table[slot];
+            if (candidate == null) {
+                return this.table[slot] = chars.toString();
+            }
+            if (candidate.hashCode() == hash && candidate.contentEquals(chars)) {
+                return candidate;
+            }
+        }
+        return chars.toString();
+    }
+
+    /**
+     * @param bytes ASCII encoded characters of a parsed key.
+     * @param from  index of the first byte.
+     * @param to    index after the last byte.
+     * @param hash  the String hash code of the key.
+     * @return the canonical instance, or a new String if the table has no room for the key.
+     */
+    String key(byte[] bytes, int from, int to, int hash) {
+        int length = to - from;
+        if (length > MAX_KEY_LENGTH) {
+            return ascii(bytes, from, to);
+        }
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int slot = (hash + probe) & this.mask;
+            String candidate = this.table[slot];
+            if (candidate == null) {
+                return this.table[slot] = ascii(bytes, from, to);
+            }
+            if (candidate.hashCode() == hash && equals(candidate, bytes, from, length)) {
+                return candidate;
+            }
+        }
+        return ascii(bytes, from, to);
+    }
+
+    private static boolean equals(String candidate, byte[] bytes, int from, int length) {
+        if (candidate.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (candidate.charAt(i) != bytes[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String ascii(byte[] bytes, int from, int to) {
+        return new String(bytes, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+}
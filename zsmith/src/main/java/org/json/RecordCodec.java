@@ -0,0 +1,477 @@
+package org.json;
+
+/*
+Public Domain.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A RecordCodec converts a record type to and from JSON without building an
+ * intermediate JSONObject. The component accessors, the canonical
+ * constructor and the encoded keys are resolved once per record type.
+ * <p>
+ * Keys are the component names in snake_case (<code>toolUseId</code> becomes
+ * <code>tool_use_id</code>), written in component order after the constants
+ * added with {@link #withConstant(String, Object)}. Null components and false
+ * booleans are omitted, absent keys are read as null, false or 0.
+ * Components of record types are converted with their default codec, unless
+ * the record serializes itself as {@link JSONString} or {@link JSONByteWritable}.
+ *
+ * <pre>
+ * static final RecordCodec&lt;ToolResult&gt; CODEC = RecordCodec.of(ToolResult.class)
+ *     .withConstant("type", "tool_result");
+ *
+ * String json = CODEC.toJSONString(result);
+ * ToolResult parsed = CODEC.read(json);
+ * </pre>
+ *
+ * @param <R> the record type
+ */
+public final class RecordCodec<R extends Record> {
+
+    private static final ClassValue<RecordCodec<?>> DEFAULTS = new ClassValue<>() {
+        @Override
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        protected RecordCodec<?> computeValue(Class<?> type) {
+            return new RecordCodec(type.asSubclass(Record.class));
+        }
+    };
+
+    /**
+     * A key/value pair, the key is kept encoded as <code>"key":</code>.
+     */
+    record Field(String key, String prefix, byte[] prefixBytes) {
+
+        static Field of(String key) {
+            var prefix = JSONObject.quote(key) + ":";
+            return new Field(key, prefix, prefix.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * @param accessor adapted to <code>(Object)Object</code>
+     */
+    record Component(Field field, Class<?> type, MethodHandle accessor) {}
+
+    record Constant(Field field, Object value) {}
+
+    private final Class<R> type;
+    private final Component[] components;
+    private final Constant[] constants;
+    /** the canonical constructor, adapted to <code>(Object[])Object</code> */
+    private final MethodHandle constructor;
+
+    private RecordCodec(Class<R> type) {
+        if (!type.isRecord()) {
+            throw new IllegalArgumentException(type.getName() + " is not a record");
+        }
+        var lookup = MethodHandles.publicLookup();
+        RecordComponent[] recordComponents = type.getRecordComponents();
+        this.type = type;
+        this.components = new Component[recordComponents.length];
+        var parameterTypes = new Class<?>[recordComponents.length];
+        try {
+            for (int i = 0; i < recordComponents.length; i++) {
+                var component = recordComponents[i];
+                var accessor = lookup.unreflect(component.getAccessor())
+                        .asType(MethodType.methodType(Object.class, Object.class));
+                this.components[i] = new Component(Field.of(snakeCase(component.getName())), component.getType(), accessor);
+                parameterTypes[i] = component.getType();
+            }
+            this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes))
+                    .asSpreader(Object[].class, parameterTypes.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("record " + type.getName() + " is not accessible", e);
+        }
+        this.constants = new Constant[0];
+    }
+
+    private RecordCodec(RecordCodec<R> codec, Constant[] constants) {
+        this.type = codec.type;
+        this.components = codec.components;
+        this.constructor = codec.constructor;
+        this.constants = constants;
+    }
+
+    /**
+     * @param type a public record type.
+     * @return the codec of the type, created once per type.
+     * @throws IllegalArgumentException if the type is not an accessible record.
+     */
+    @SuppressWarnings("unchecked")
+    public static <R extends Record> RecordCodec<R> of(Class<R> type) {
+        return (RecordCodec<R>) DEFAULTS.get(type);
+    }
+
+    /**
+     * Adds a key with a fixed value, written before the components and ignored
+     * when reading, e.g. a <code>type</code> discriminator.
+     *
+     * @param key the key.
+     * @param value the value.
+     * @return a new codec, this codec is not modified.
+     */
+    public RecordCodec<R> withConstant(String key, Object value) {
+        var extended = Arrays.copyOf(this.constants, this.constants.length + 1);
+        extended[this.constants.length] = new Constant(Field.of(key), value);
+        return new RecordCodec<>(this, extended);
+    }
+
+    /**
+     * @param record the record.
+     * @return the compact JSON text.
+     */
+    public String toJSONString(R record) {
+        var sb = new StringBuilder(64);
+        try {
+            this.write(record, sb);
+        } catch (IOException e) {
+            // will never happen - we are writing to a StringBuilder
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the record to an Appendable.
+     *
+     * @param record the record.
+     * @param writer the target.
+     * @return the writer.
+     * @throws IOException if the writer fails.
+     */
+    public Appendable write(R record, Appendable writer) throws IOException {
+        writer.append('{');
+        boolean comma = false;
+        for (Constant constant : this.constants) {
+            if (comma) {
+                writer.append(',');
+            }
+            writer.append(constant.field().prefix());
+            JSONObject.writeValue(writer, constant.value(), 0, 0);
+            comma = true;
+        }
+        for (Component component : this.components) {
+            Object value = get(component, record);
+            if (isOmitted(value)) {
+                continue;
+            }
+            if (comma) {
+                writer.append(',');
+            }
+            writer.append(component.field().prefix());
+            if (value instanceof Record nested && !(value instanceof JSONString)) {
+                codec(nested).write(nested, writer);
+            } else {
+                JSONObject.writeValue(writer, value, 0, 0);
+            }
+            comma = true;
+        }
+        writer.append('}');
+        return writer;
+    }
+
+    /**
+     * Writes the record as UTF-8 bytes.
+     *
+     * @param record the record.
+     * @param writer the target.
+     * @return the writer.
+     */
+    public JSONByteWriter write(R record, JSONByteWriter writer) {
+        try {
+            this.writeBytes(record, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer;
+    }
+
+    private void writeBytes(R record, JSONByteWriter writer) throws IOException {
+        writer.write('{');
+        boolean comma = false;
+        for (Constant constant : this.constants) {
+            if (comma) {
+                writer.write(',');
+            }
+            writer.write(constant.field().prefixBytes());
+            writer.writeValue(constant.value());
+            comma = true;
+        }
+        for (Component component : this.components) {
+            Object value = get(component, record);
+            if (isOmitted(value)) {
+                continue;
+            }
+            if (comma) {
+                writer.write(',');
+            }
+            writer.write(component.field().prefixBytes());
+            if (value instanceof Record nested && !(value instanceof JSONString)) {
+                codec(nested).writeBytes(nested, writer);
+            } else {
+                writer.writeValue(value);
+            }
+            comma = true;
+        }
+        writer.write('}');
+    }
+
+    /**
+     * Builds a JSONObject, for consumers which modify or navigate the tree.
+     *
+     * @param record the record.
+     * @return a new JSONObject.
+     */
+    public JSONObject toJSONObject(R record) {
+        var json = new JSONObject(this.constants.length + this.components.length);
+        for (Constant constant : this.constants) {
+            json.put(constant.field().key(), constant.value());
+        }
+        for (Component component : this.components) {
+            Object value = get(component, record);
+            if (isOmitted(value)) {
+                continue;
+            }
+            json.put(component.field().key(), value instanceof Record nested && !(value instanceof JSONString) ? codec(nested).toJSONObject(nested) : value);
+        }
+        return json;
+    }
+
+    /**
+     * Reads a record from a parsed JSONObject.
+     *
+     * @param json the object.
+     * @return the record.
+     * @throws IllegalArgumentException if a value does not match its component's type.
+     */
+    public R read(JSONObject json) {
+        var arguments = new Object[this.components.length];
+        for (int i = 0; i < this.components.length; i++) {
+            var component = this.components[i];
+            arguments[i] = convert(component, json.opt(component.field().key()));
+        }
+        return this.construct(arguments);
+    }
+
+    /**
+     * Reads a record from JSON text.
+     *
+     * @param source the text.
+     * @return the record.
+     * @throws IllegalArgumentException if there is a syntax error or a value does not match its component's type.
+     */
+    public R read(String source) {
+        return this.read(new JSONTokener(source));
+    }
+
+    /**
+     * Reads a record directly from the tokener, only values of components
+     * with JSONObject, JSONArray or Object type are built as tree.
+     *
+     * @param x the tokener, positioned before the object.
+     * @return the record.
+     * @throws IllegalArgumentException if there is a syntax error or a value does not match its component's type.
+     */
+    public R read(JSONTokener x) {
+        if (x.nextClean() != '{') {
+            throw x.syntaxError("A JSONObject text must begin with '{'");
+        }
+        var arguments = new Object[this.components.length];
+        char c = x.nextClean();
+        while (c != '}') {
+            if (c == 0) {
+                throw x.syntaxError("A JSONObject text must end with '}'");
+            }
+            var key = x.nextKey(c).toString();
+            if (x.nextClean() != ':') {
+                throw x.syntaxError("Expected a ':' after a key");
+            }
+            int index = this.indexOf(key);
+            if (index < 0) {
+                x.nextValue();
+            } else if (Record.class.isAssignableFrom(this.components[index].type())) {
+                arguments[index] = this.readNested(x, this.components[index].type());
+            } else {
+                arguments[index] = convert(this.components[index], x.nextValue());
+            }
+            c = x.nextClean();
+            if (c == ',' || c == ';') {
+                c = x.nextClean();
+            } else if (c != '}') {
+                throw x.syntaxError("Expected a ',' or '}'");
+            }
+        }
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] == null) {
+                arguments[i] = convert(this.components[i], null);
+            }
+        }
+        return this.construct(arguments);
+    }
+
+    /**
+     * Reads a JSON array of records directly from the tokener.
+     *
+     * @param x the tokener, positioned before the array.
+     * @return the records.
+     * @throws IllegalArgumentException if there is a syntax error or a value does not match its component's type.
+     */
+    public List<R> readArray(JSONTokener x) {
+        if (x.nextClean() != '[') {
+            throw x.syntaxError("A JSONArray text must start with '['");
+        }
+        var records = new ArrayList<R>();
+        if (x.nextClean() == ']') {
+            return records;
+        }
+        x.back();
+        for (;;) {
+            records.add(this.read(x));
+            char c = x.nextClean();
+            if (c == ']') {
+                return records;
+            }
+            if (c != ',') {
+                throw x.syntaxError("Expected a ',' or ']'");
+            }
+        }
+    }
+
+    private Object readNested(JSONTokener x, Class<?> recordType) {
+        char c = x.nextClean();
+        if (c == 'n') {
+            x.back();
+            x.nextValue();
+            return null;
+        }
+        x.back();
+        return of(recordType.asSubclass(Record.class)).read(x);
+    }
+
+    private int indexOf(String key) {
+        for (int i = 0; i < this.components.length; i++) {
+            if (this.components[i].field().key().equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private R construct(Object[] arguments) {
+        try {
+            return this.type.cast(this.constructor.invokeExact(arguments));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("cannot construct " + this.type.getName(), e);
+        }
+    }
+
+    private static Object get(Component component, Object record) {
+        try {
+            return component.accessor().invokeExact(record);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("cannot read " + component.field().key(), e);
+        }
+    }
+
+    private static boolean isOmitted(Object value) {
+        return value == null || Boolean.FALSE.equals(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Record> RecordCodec<T> codec(T record) {
+        return of((Class<T>) record.getClass());
+    }
+
+    /**
+     * Converts a parsed value into the component's type.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object convert(Component component, Object value) {
+        Class<?> type = component.type();
+        if (value == null || JSONObject.NULL.equals(value)) {
+            return type.isPrimitive() ? defaultValue(type) : null;
+        }
+        if (type == Object.class || type.isInstance(value)) {
+            return value;
+        }
+        if (type == String.class) {
+            if (value instanceof String) {
+                return value;
+            }
+        } else if (type == boolean.class || type == Boolean.class) {
+            if (value instanceof Boolean) {
+                return value;
+            }
+            if ("true".equalsIgnoreCase(value.toString()) || "false".equalsIgnoreCase(value.toString())) {
+                return Boolean.valueOf(value.toString());
+            }
+        } else if (value instanceof Number number) {
+            if (type == int.class || type == Integer.class) {
+                return number.intValue();
+            } else if (type == long.class || type == Long.class) {
+                return number.longValue();
+            } else if (type == double.class || type == Double.class) {
+                return number.doubleValue();
+            } else if (type == float.class || type == Float.class) {
+                return number.floatValue();
+            }
+        } else if (type.isEnum() && value instanceof String name) {
+            return Enum.valueOf((Class<Enum>) type, name);
+        } else if (type.isRecord() && value instanceof JSONObject json) {
+            return of((Class<Record>) type).read(json);
+        }
+        throw new IllegalArgumentException("JSONObject[" + JSONObject.quote(component.field().key()) + "] is not a "
+                + type.getSimpleName().toLowerCase(Locale.ROOT) + " (" + value.getClass() + " : " + value + ").");
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == char.class) {
+            return '\0';
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0f;
+        }
+        return 0d;
+    }
+
+    /**
+     * @return the name with an underscore before each upper case letter following a lower case letter or digit, in lower case.
+     */
+    static String snakeCase(String name) {
+        var sb = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c) && i > 0 && !Character.isUpperCase(name.charAt(i - 1))) {
+                sb.append('_');
+            }
+            sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+}